@@ -0,0 +1,295 @@
+package metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import nodes.Competitor;
+import parse.AbstractGame;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Bradley-Terry ratings: the maximum-likelihood strengths g under which competitor i beats j with
+ * probability g[i] / (g[i] + g[j]), fitted to all of a list's completed games at once, as a batch
+ * counterpart to Elo's game-by-game updates.
+ *
+ * At a home site, the home competitor's strength is multiplied by a home-advantage factor, which
+ * is fitted along with the strengths (games at neutral sites do not inform it). Draws count as half
+ * a win for each side. Every competitor also plays one virtual draw against a fixed competitor of
+ * strength 1, which keeps winless and unbeaten competitors' strengths finite and anchors the scale.
+ *
+ * The fit uses Hunter's minorization-maximization (MM) iterations. The games are reduced to pair
+ * counts (home, away, and neutral games between each pair of competitors), held in sparse matrices
+ * with a common layout, so that each iteration costs one pass over the distinct pairings. Within an
+ * iteration every competitor's update reads only the last iteration's strengths, so competitors
+ * are split across a fork/join pool, with the same result for any split. A refit after games are
+ * added starts from the last strengths.
+ */
+public class BradleyTerry<Game extends AbstractGame<?>> {
+
+	public static final double DEFAULT_TOLERANCE = 1.0e-9;
+	private static final int MAX_ITERATIONS = 10000;
+	// Fewest competitors updated by one task when an iteration is split across threads
+	private static final int MIN_PARALLEL_COMPETITORS = 64;
+
+	private GameList<Game> gameList;
+	private double tolerance = DEFAULT_TOLERANCE;
+	private int iterations;
+
+	// The last fit, kept by competitor so that a refit can start from it
+	private Map<Competitor, Double> strengths = new HashMap<>();
+	private double homeAdvantage = 1;
+
+	// The current fit's pair counts: entry (i, j) counts games i hosted against j, and so on
+	private SparseMatrix homeGames, awayGames, neutralGames;
+	private double[] wins;	// Wins by ordinal, with draws and the virtual draw as halves
+	private double homeWins;
+	private int numHomeGames;	// Completed games not at a neutral site
+	private double[] strength, nextStrength, homeTerms;
+
+	BradleyTerry(GameList<Game> gameList)
+	{
+		this.gameList = gameList;
+	}
+
+	public void fit()
+	{
+		fit(ForkJoinPool.commonPool());
+	}
+
+	public void fit(ForkJoinPool pool)
+	{
+		CompetitorIndex competitorIndex = countPairs();
+		int n = competitorIndex.size();
+		strength = new double[n];
+		nextStrength = new double[n];
+		homeTerms = new double[n];
+		for (int i = 0; i < n; i++)
+			strength[i] = strengths.getOrDefault(competitorIndex.competitor(i), 1.0);
+		// The home matrix shares its layout with the others, so count games rather than its entries.
+		boolean fitsHomeAdvantage = numHomeGames > 0;
+		if (!fitsHomeAdvantage) homeAdvantage = 1;
+
+		iterations = 0;
+		double change = Double.POSITIVE_INFINITY;
+		while (change > tolerance && iterations < MAX_ITERATIONS)
+		{
+			iterations++;
+			if (n < 2 * MIN_PARALLEL_COMPETITORS)
+				updateStrengths(0, n);
+			else
+				pool.invoke(new UpdateTask(0, n));
+
+			rescale(nextStrength);
+			change = 0;
+			double homeDenominator = 0;
+			for (int i = 0; i < n; i++)
+			{
+				change = Math.max(change, Math.abs(nextStrength[i] - strength[i]) / strength[i]);
+				homeDenominator += homeTerms[i];
+			}
+			double[] swap = strength;
+			strength = nextStrength;
+			nextStrength = swap;
+			if (fitsHomeAdvantage && homeDenominator > 0)
+			{
+				double nextHomeAdvantage = homeWins / homeDenominator;
+				change = Math.max(change, Math.abs(nextHomeAdvantage - homeAdvantage) / homeAdvantage);
+				homeAdvantage = nextHomeAdvantage;
+			}
+		}
+
+		strengths = new HashMap<>();
+		for (int i = 0; i < n; i++)
+			strengths.put(competitorIndex.competitor(i), strength[i]);
+	}
+
+	// Reduces the completed games to pair counts and wins, and returns the ordinals used.
+	private CompetitorIndex countPairs()
+	{
+		CompetitorIndex competitorIndex = new CompetitorIndex();
+		int numGames = 0;
+		for (Game game: gameList)
+		{
+			if (game.isComplete()) numGames++;
+		}
+		// Two entries per game: (home, away) and (away, home), or both orders at a neutral site
+		int[] rows = new int[2 * numGames], columns = new int[rows.length];
+		double[] home = new double[rows.length], away = new double[rows.length], neutral = new double[rows.length];
+		double[] score1s = new double[numGames];
+		int count = 0;
+		homeWins = 0;
+		numHomeGames = 0;
+		for (Game game: gameList)
+		{
+			if (!game.isComplete()) continue;
+			// Competitor 2 is the home competitor when the site is not neutral.
+			int index1 = competitorIndex.add(game.getCompetitor1());
+			int index2 = competitorIndex.add(game.getCompetitor2());
+			double score1 = game.getScore1().doubleValue(), score2 = game.getScore2().doubleValue();
+			double result1 = score1 > score2 ? 1 : score1 < score2 ? 0 : 0.5;
+			score1s[count / 2] = result1;
+			rows[count] = index2;
+			columns[count] = index1;
+			rows[count + 1] = index1;
+			columns[count + 1] = index2;
+			if (game.isNeutralSite())
+			{
+				neutral[count] = 1;
+				neutral[count + 1] = 1;
+			}
+			else
+			{
+				home[count] = 1;
+				away[count + 1] = 1;
+				homeWins += 1 - result1;
+				numHomeGames++;
+			}
+			count += 2;
+		}
+		int n = competitorIndex.size();
+		// Identical entry lists, so the three matrices share one layout.
+		homeGames = SparseMatrix.fromEntries(n, rows, columns, home, count);
+		awayGames = SparseMatrix.fromEntries(n, rows, columns, away, count);
+		neutralGames = SparseMatrix.fromEntries(n, rows, columns, neutral, count);
+
+		wins = new double[n];
+		for (int i = 0; i < n; i++)
+			wins[i] = 0.5;	// The virtual draw
+		for (int g = 0; g < count / 2; g++)
+		{
+			wins[columns[2 * g]] += score1s[g];
+			wins[rows[2 * g]] += 1 - score1s[g];
+		}
+		return competitorIndex;
+	}
+
+	/* One MM step for competitors [from, to): each new strength is the competitor's wins over the
+	 * sum, across its games, of (its factor at the site) / (sum of both sides' effective strengths).
+	 * Also leaves each competitor's share of the home-advantage denominator in homeTerms. */
+	private void updateStrengths(int from, int to)
+	{
+		double theta = homeAdvantage;
+		for (int i = from; i < to; i++)
+		{
+			double denominator = 1 / (strength[i] + 1);	// The virtual draw
+			double homeTerm = 0;
+			for (int k = homeGames.rowStart(i); k < homeGames.rowStart(i + 1); k++)
+			{
+				int j = homeGames.column(k);
+				double hosted = homeGames.value(k), visited = awayGames.value(k);
+				if (hosted > 0)
+				{
+					double atHome = hosted / (theta * strength[i] + strength[j]);
+					denominator += theta * atHome;
+					homeTerm += strength[i] * atHome;
+				}
+				if (visited > 0)
+					denominator += visited / (theta * strength[j] + strength[i]);
+				double neutral = neutralGames.value(k);
+				if (neutral > 0)
+					denominator += neutral / (strength[i] + strength[j]);
+			}
+			nextStrength[i] = wins[i] / denominator;
+			homeTerms[i] = homeTerm;
+		}
+	}
+
+	/* Multiplies all strengths by the factor which maximizes the likelihood. Real games depend only
+	 * on ratios of strengths, so only the virtual draws, sum of log(c * g) / 2 - log(c * g + 1),
+	 * depend on the factor c. MM alone moves this overall scale very slowly; solving for it
+	 * directly (by Newton's method in log c) leaves only the ratios to iterate on. */
+	private static void rescale(double[] strength)
+	{
+		double logFactor = 0;
+		for (int step = 0; step < 50; step++)
+		{
+			double factor = Math.exp(logFactor), slope = 0, curvature = 0;
+			for (double s: strength)
+			{
+				double share = factor * s / (factor * s + 1);
+				slope += 0.5 - share;
+				curvature += share * (1 - share);
+			}
+			if (curvature == 0) return;
+			double correction = slope / curvature;
+			logFactor += correction;
+			if (Math.abs(correction) < 1.0e-12) break;
+		}
+		double factor = Math.exp(logFactor);
+		for (int i = 0; i < strength.length; i++)
+			strength[i] *= factor;
+	}
+
+	private class UpdateTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 4158526302867013957L;
+		private int from, to;
+
+		UpdateTask(int from, int to)
+		{
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from < 2 * MIN_PARALLEL_COMPETITORS)
+			{
+				updateStrengths(from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new UpdateTask(from, mid), new UpdateTask(mid, to));
+		}
+	}
+
+	/* Returns ratings on the Elo scale, 400 * log10(strength), shifted to average 0 like the Elo
+	 * ratings of PowerRating: a 400-point gap means 10-to-1 odds at a neutral site. */
+	public Map<Competitor, Double> getRatings()
+	{
+		double meanLog = 0;
+		for (double s: strengths.values())
+			meanLog += Math.log10(s);
+		meanLog /= Math.max(1, strengths.size());
+		Map<Competitor, Double> ratingsMap = new HashMap<>();
+		for (Map.Entry<Competitor, Double> entry: strengths.entrySet())
+			ratingsMap.put(entry.getKey(), 400 * (Math.log10(entry.getValue()) - meanLog));
+		return ratingsMap;
+	}
+
+	// Returns the fitted strengths, relative to the virtual competitor's strength of 1.
+	public Map<Competitor, Double> getStrengths()
+	{
+		return new HashMap<>(strengths);
+	}
+
+	// The factor multiplying a home competitor's strength; 1 if no game was at a home site.
+	public double getHomeAdvantage()
+	{
+		return homeAdvantage;
+	}
+
+	// Iterations taken by the last call to fit().
+	public int iterations()
+	{
+		return iterations;
+	}
+
+	// Sets the largest relative change in any parameter at which iteration stops.
+	public void setTolerance(double tolerance)
+	{
+		if (!(tolerance > 0))
+			throw new IllegalArgumentException("Tolerance must be positive.");
+		this.tolerance = tolerance;
+	}
+
+	public double getTolerance()
+	{
+		return tolerance;
+	}
+}
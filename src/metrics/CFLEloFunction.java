@@ -14,6 +14,14 @@ import parse.CFLGame;
 public class CFLEloFunction extends EloFunction<CFLGame> implements java.io.Serializable {
 
 	private static final long serialVersionUID = 8569587913551574751L;
+	
+	// Margin of victory multipliers, precomputed for common margins
+	private static final double[] MOV_MULTIPLIERS = new double[128];
+	static
+	{
+		for (int margin = 0; margin < MOV_MULTIPLIERS.length; margin++)
+			MOV_MULTIPLIERS[margin] = Math.log(margin + 1);
+	}
 
 	/* Default K-factor = 20. No home-field advantage expected.*/
 	public CFLEloFunction()
@@ -28,28 +36,18 @@ public class CFLEloFunction extends EloFunction<CFLGame> implements java.io.Seri
 
 	/* Main body of the function */
 	@Override
-	public RatingPair apply(RatingPair pair, CFLGame game) {
-		
-		double homeAdvantageElo = getHomeAdvantageElo();
+	public double ratingDelta(double rating1, double rating2, CFLGame game) {
 		
 		if (!game.isComplete())
 		{
-			return pair;
+			return 0;
 		}
 		
 		/* eloDifference is negative when competitor 1 is favored
 		 * and positive when competitor 2 is favored.
 		 */
-		double eloDifference = pair.rating2 - pair.rating1;
-		if (!game.isNeutralSite())
-		{
-			// Advantage home advantage
-			if (game.homeCompetitor() == game.getCompetitor1())
-				eloDifference -= homeAdvantageElo;
-			else if (game.homeCompetitor() == game.getCompetitor2());
-				eloDifference += homeAdvantageElo;
-		}
-		double expectedScore1 = 1.0 / (1.0 + Math.pow(10, eloDifference / 400));
+		double eloDifference = eloDifference(rating1, rating2, game);
+		double expectedScore1 = expectedScore(eloDifference);
 		// expectedScore2 would be 1 - expectedScore1
 		
 		double actualScore1;
@@ -72,11 +70,45 @@ public class CFLEloFunction extends EloFunction<CFLGame> implements java.io.Seri
 		double actualK = K;
 		if (game.isPlayoffs()) { actualK += 15; }
 		double delta = (1 + movMultiplier) * actualK * (actualScore1 - expectedScore1);
-		
-		// Updates the power ratings
-		double newRating1 = pair.rating1 + delta;
-		double newRating2 = pair.rating2 - delta;
-		RatingPair newPair = new RatingPair(newRating1, newRating2); 
-		return newPair;
+		return delta;
+	}
+	
+	private static double movMultiplier(int marginOfVictory)
+	{
+		return marginOfVictory < MOV_MULTIPLIERS.length ? MOV_MULTIPLIERS[marginOfVictory] 
+				: Math.log(marginOfVictory + 1);
+	}
+	
+	@Override
+	protected int flags(CFLGame game)
+	{
+		int flags = super.flags(game);
+		if (game.isPlayoffs()) { flags |= GameBatch.PLAYOFF; }
+		return flags;
+	}
+	
+	@Override
+	public void update(double[] ratings, GameBatch batch, int from, int to)
+	{
+		double homeAdvantageElo = getHomeAdvantageElo();
+		for (int i = from; i < to; i++)
+		{
+			int flags = batch.flags[i];
+			if ((flags & GameBatch.COMPLETE) == 0) { continue; }
+			
+			int index1 = batch.competitor1s[i], index2 = batch.competitor2s[i];
+			int score1 = batch.scores1[i], score2 = batch.scores2[i];
+			double eloDifference = ratings[index2] - ratings[index1];
+			if ((flags & GameBatch.NEUTRAL_SITE) == 0) { eloDifference += homeAdvantageElo; }
+			double expectedScore1 = ExpectedScoreTable.expectedScore(eloDifference);
+			double actualScore1 = score1 > score2 ? 1 : (score1 < score2 ? 0 : 0.5);
+			
+			double movMultiplier = movMultiplier(Math.abs(score1 - score2));
+			double actualK = K;
+			if ((flags & GameBatch.PLAYOFF) != 0) { actualK += 15; }
+			double delta = (1 + movMultiplier) * actualK * (actualScore1 - expectedScore1);
+			ratings[index1] += delta;
+			ratings[index2] -= delta;
+		}
 	}
 }
@@ -0,0 +1,49 @@
+package metrics;
+
+import parse.AbstractGame;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Colley ratings: wins and losses only, adjusted for strength of schedule. The Colley matrix is
+ * the Massey matrix plus 2 on the diagonal, and each competitor's right-hand side is
+ * 1 + (wins - losses) / 2. Ratings average 0.5; ties count as neither a win nor a loss.
+ */
+public class ColleyRating<Game extends AbstractGame<?>> extends LinearRating<Game> {
+
+	ColleyRating(GameList<Game> gameList)
+	{
+		super(gameList);
+	}
+
+	@Override
+	protected double diagonalShift()
+	{
+		return 2;
+	}
+
+	@Override
+	protected double onesWeight()
+	{
+		return 0;
+	}
+
+	@Override
+	protected double baseValue()
+	{
+		return 1;
+	}
+
+	@Override
+	protected double gameValue(double score1, double score2)
+	{
+		return Math.signum(score1 - score2) / 2;
+	}
+
+	@Override
+	protected double startingValue()
+	{
+		return 0.5;
+	}
+}
@@ -0,0 +1,77 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nodes.Competitor;
+import parse.AbstractGame;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Assigns each Competitor a dense ordinal (0, 1, 2, ...) in the order in which it is first seen,
+ * so that per-competitor values can be kept in primitive arrays rather than in maps.
+ */
+public class CompetitorIndex implements java.io.Serializable {
+
+	private static final long serialVersionUID = 3710365923004411742L;
+
+	private Map<Competitor, Integer> ordinals;
+	private List<Competitor> competitors;
+
+	CompetitorIndex()
+	{
+		ordinals = new HashMap<>();
+		competitors = new ArrayList<>();
+	}
+
+	// Indexes both competitors of every game in the list, in order of appearance.
+	static CompetitorIndex fromGames(List<? extends AbstractGame<?>> gameList)
+	{
+		CompetitorIndex index = new CompetitorIndex();
+		for (AbstractGame<?> game: gameList)
+		{
+			index.add(game.getCompetitor1());
+			index.add(game.getCompetitor2());
+		}
+		return index;
+	}
+
+	// Returns the competitor's ordinal, assigning the next one if the competitor is new.
+	public int add(Competitor competitor)
+	{
+		Integer ordinal = ordinals.get(competitor);
+		if (ordinal == null)
+		{
+			ordinal = competitors.size();
+			ordinals.put(competitor, ordinal);
+			competitors.add(competitor);
+		}
+		return ordinal;
+	}
+
+	// Returns the competitor's ordinal, or -1 if the competitor has not been indexed.
+	public int ordinalOf(Competitor competitor)
+	{
+		Integer ordinal = ordinals.get(competitor);
+		return ordinal == null ? -1 : ordinal;
+	}
+
+	public Competitor competitor(int ordinal)
+	{
+		return competitors.get(ordinal);
+	}
+
+	public boolean contains(Competitor competitor)
+	{
+		return ordinals.containsKey(competitor);
+	}
+
+	public int size()
+	{
+		return competitors.size();
+	}
+}
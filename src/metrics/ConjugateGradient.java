@@ -0,0 +1,98 @@
+package metrics;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Jacobi-preconditioned conjugate gradient for symmetric positive (semi)definite systems
+ * (A + c * J) x = b, where A is sparse and J is the all-ones matrix. The c * J term, applied
+ * implicitly in O(n), lets a rating system whose matrix has every row summing to zero (e.g.
+ * Massey's) pin its ratings to sum to zero without giving up symmetry or sparsity.
+ *
+ * x holds the starting guess on entry and the solution on return, so a system which has changed
+ * only a little since it was last solved can start from the last solution.
+ */
+final class ConjugateGradient {
+
+	private ConjugateGradient() {}
+
+	/* Solves until the residual's norm is at most tolerance times b's, or maxIterations have run.
+	 * Returns the number of iterations taken. */
+	static int solve(SparseMatrix a, double onesWeight, double[] b, double[] x, double tolerance,
+			int maxIterations)
+	{
+		int n = a.size();
+		double[] inverseDiagonal = a.diagonal();
+		for (int i = 0; i < n; i++)
+		{
+			double diagonal = inverseDiagonal[i] + onesWeight;
+			inverseDiagonal[i] = diagonal > 0 ? 1 / diagonal : 1;
+		}
+
+		double[] residual = new double[n], preconditioned = new double[n];
+		double[] direction = new double[n], product = new double[n];
+		apply(a, onesWeight, x, residual);
+		double bNorm2 = 0, residualNorm2 = 0;
+		for (int i = 0; i < n; i++)
+		{
+			residual[i] = b[i] - residual[i];
+			bNorm2 += b[i] * b[i];
+			residualNorm2 += residual[i] * residual[i];
+		}
+		double threshold2 = tolerance * tolerance * bNorm2;
+		if (residualNorm2 <= threshold2) return 0;
+
+		double rho = 0;
+		for (int i = 0; i < n; i++)
+		{
+			preconditioned[i] = inverseDiagonal[i] * residual[i];
+			direction[i] = preconditioned[i];
+			rho += residual[i] * preconditioned[i];
+		}
+
+		int iteration = 0;
+		while (iteration < maxIterations)
+		{
+			iteration++;
+			apply(a, onesWeight, direction, product);
+			double curvature = 0;
+			for (int i = 0; i < n; i++)
+				curvature += direction[i] * product[i];
+			if (!(curvature > 0)) break;	// Converged into the null space of a singular system
+
+			double step = rho / curvature;
+			residualNorm2 = 0;
+			for (int i = 0; i < n; i++)
+			{
+				x[i] += step * direction[i];
+				residual[i] -= step * product[i];
+				residualNorm2 += residual[i] * residual[i];
+			}
+			if (residualNorm2 <= threshold2) break;
+
+			double nextRho = 0;
+			for (int i = 0; i < n; i++)
+			{
+				preconditioned[i] = inverseDiagonal[i] * residual[i];
+				nextRho += residual[i] * preconditioned[i];
+			}
+			double beta = nextRho / rho;
+			rho = nextRho;
+			for (int i = 0; i < n; i++)
+				direction[i] = preconditioned[i] + beta * direction[i];
+		}
+		return iteration;
+	}
+
+	// Sets y to (a + onesWeight * J) x.
+	private static void apply(SparseMatrix a, double onesWeight, double[] x, double[] y)
+	{
+		a.multiply(x, y);
+		if (onesWeight == 0) return;
+		double sum = 0;
+		for (double value: x)
+			sum += value;
+		for (int i = 0; i < y.length; i++)
+			y[i] += onesWeight * sum;
+	}
+}
@@ -1,5 +1,6 @@
 package metrics;
 
+import java.util.List;
 import java.util.function.BiFunction;
 
 import parse.AbstractGame;
@@ -60,6 +61,85 @@ public abstract class EloFunction<Game extends AbstractGame<?>>
 	}
 	
 	
+	/* Returns competitor 2's rating minus competitor 1's, adjusted for home advantage. The difference
+	 * is negative when competitor 1 is favored and positive when competitor 2 is favored. */
+	public double eloDifference(double rating1, double rating2, Game game)
+	{
+		double homeAdvantageElo = getHomeAdvantageElo();
+		double eloDifference = rating2 - rating1;
+		if (!game.isNeutralSite())
+		{
+			// Advantage home advantage
+			if (game.homeCompetitor() == game.getCompetitor1())
+				eloDifference -= homeAdvantageElo;
+			else if (game.homeCompetitor() == game.getCompetitor2());
+				eloDifference += homeAdvantageElo;
+		}
+		return eloDifference;
+	}
+	
+	// Competitor 1's expected score (its win probability, counting draws as half) given eloDifference.
+	public static double expectedScore(double eloDifference)
+	{
+		return 1.0 / (1.0 + Math.pow(10, eloDifference / 400));
+	}
+	
+	public double expectedScore(double rating1, double rating2, Game game)
+	{
+		return expectedScore(eloDifference(rating1, rating2, game));
+	}
+	
 	@Override
-	public abstract RatingPair apply(RatingPair pair, Game game);
+	public RatingPair apply(RatingPair pair, Game game)
+	{
+		double delta = ratingDelta(pair.rating1, pair.rating2, game);
+		return new RatingPair(pair.rating1 + delta, pair.rating2 - delta);
+	}
+	
+	/* Updates the ratings of the game's two competitors in place, given their indices in ratings.
+	 * Unlike apply(), allocates nothing. */
+	public void update(double[] ratings, int index1, int index2, Game game)
+	{
+		double delta = ratingDelta(ratings[index1], ratings[index2], game);
+		ratings[index1] += delta;
+		ratings[index2] -= delta;
+	}
+	
+	/* Builds a batch of the games for update(double[], GameBatch, int, int), giving each competitor
+	 * its ordinal in competitorIndex (which indexes competitors it has not seen). */
+	public GameBatch toBatch(List<? extends Game> games, CompetitorIndex competitorIndex)
+	{
+		GameBatch batch = new GameBatch(games.size());
+		for (Game game: games)
+		{
+			batch.add(competitorIndex.add(game.getCompetitor1()), competitorIndex.add(game.getCompetitor2()),
+					game.isComplete() ? game.getScore1().intValue() : 0,
+					game.isComplete() ? game.getScore2().intValue() : 0, flags(game));
+		}
+		return batch;
+	}
+	
+	// The GameBatch flags describing a game. Leagues add the flags their K-factors depend on.
+	protected int flags(Game game)
+	{
+		int flags = 0;
+		if (game.isComplete()) { flags |= GameBatch.COMPLETE; }
+		if (game.isNeutralSite()) { flags |= GameBatch.NEUTRAL_SITE; }
+		return flags;
+	}
+	
+	public void update(double[] ratings, GameBatch batch)
+	{
+		update(ratings, batch, 0, batch.size());
+	}
+	
+	/* Applies games [from, to) of the batch, in order, to a ratings array indexed by ordinal.
+	 * The same calculation as ratingDelta(), except that expected scores come from 
+	 * ExpectedScoreTable, so results may differ from the per-game path by up to 
+	 * ExpectedScoreTable.MAX_ERROR times the K-factor and margin multiplier per game. */
+	public abstract void update(double[] ratings, GameBatch batch, int from, int to);
+	
+	/* Main body of the function. Returns the number of points competitor 1 gains (or, if negative,
+	 * loses) from the game; competitor 2 gains the opposite. Returns 0 for incomplete games. */
+	public abstract double ratingDelta(double rating1, double rating2, Game game);
 }
@@ -0,0 +1,42 @@
+package metrics;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* A precomputed table of the Elo expected score, 1 / (1 + 10^(d / 400)), for rating differences d
+ * between -1600 and 1600 in steps of half a point. Values in between are linearly interpolated.
+ *
+ * Error bound: linear interpolation is off by at most step^2 / 8 * max|f''|. With
+ * f(d) = 1 / (1 + e^(c * d)) and c = ln(10) / 400, max|f''| = c^2 * sqrt(3) / 18, so the error is
+ * at most 0.25 / 8 * 3.314e-5 * 0.0962 < 1.0e-7 (a hundred-thousandth of a percentage point).
+ * Differences outside the table fall back to Math.pow and are exact.
+ */
+public final class ExpectedScoreTable {
+
+	private static final double RANGE = 1600;
+	private static final double STEP = 0.5;
+	private static final double[] TABLE;
+	public static final double MAX_ERROR = 1.0e-7;
+
+	static
+	{
+		int size = (int)(2 * RANGE / STEP) + 2;	// One extra entry so that interpolation never overruns
+		TABLE = new double[size];
+		for (int i = 0; i < size; i++)
+			TABLE[i] = EloFunction.expectedScore(i * STEP - RANGE);
+	}
+
+	private ExpectedScoreTable() {}
+
+	// Competitor 1's expected score given eloDifference (competitor 2's rating minus competitor 1's).
+	public static double expectedScore(double eloDifference)
+	{
+		if (!(eloDifference > -RANGE && eloDifference < RANGE))	// Also catches NaN
+			return EloFunction.expectedScore(eloDifference);
+		double position = (eloDifference + RANGE) / STEP;
+		int index = (int)position;
+		double fraction = position - index;
+		return TABLE[index] + fraction * (TABLE[index + 1] - TABLE[index]);
+	}
+}
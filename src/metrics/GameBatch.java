@@ -0,0 +1,64 @@
+package metrics;
+
+import java.util.Arrays;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* A run of games stored column by column in primitive arrays, for EloFunction's batch update.
+ * Competitors are given as ordinals (see CompetitorIndex), incomplete games' scores as 0, and
+ * everything else an Elo function needs to know about a game as bit flags.
+ */
+public class GameBatch {
+
+	public static final int COMPLETE = 1;
+	public static final int NEUTRAL_SITE = 2;
+	public static final int PLAYOFF = 4;
+	public static final int STAGE_PLAY = 8;	// Overwatch League games with a stage number above 4
+
+	int size;
+	int[] competitor1s, competitor2s;
+	int[] scores1, scores2;
+	byte[] flags;
+
+	GameBatch(int capacity)
+	{
+		capacity = Math.max(1, capacity);
+		competitor1s = new int[capacity];
+		competitor2s = new int[capacity];
+		scores1 = new int[capacity];
+		scores2 = new int[capacity];
+		flags = new byte[capacity];
+	}
+
+	public void add(int competitor1, int competitor2, int score1, int score2, int flags)
+	{
+		if (size == competitor1s.length)
+		{
+			int capacity = size * 2;
+			competitor1s = Arrays.copyOf(competitor1s, capacity);
+			competitor2s = Arrays.copyOf(competitor2s, capacity);
+			scores1 = Arrays.copyOf(scores1, capacity);
+			scores2 = Arrays.copyOf(scores2, capacity);
+			this.flags = Arrays.copyOf(this.flags, capacity);
+		}
+		competitor1s[size] = competitor1;
+		competitor2s[size] = competitor2;
+		scores1[size] = score1;
+		scores2[size] = score2;
+		this.flags[size] = (byte)flags;
+		size++;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public int competitor1(int game) { return competitor1s[game]; }
+	public int competitor2(int game) { return competitor2s[game]; }
+	public int score1(int game) { return scores1[game]; }
+	public int score2(int game) { return scores2[game]; }
+	public int flags(int game) { return flags[game]; }
+}
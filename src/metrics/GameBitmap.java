@@ -0,0 +1,368 @@
+package metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* A compressed set of game positions, laid out as a Roaring bitmap: positions are grouped by their
+ * high 16 bits into chunks of 65536, and each chunk present is stored either as a sorted array of
+ * its low 16 bits (while it holds at most ARRAY_MAX positions) or as a 65536-bit bitmap. A team's
+ * games over many seasons then take two bytes apiece, and a union or intersection costs time in
+ * proportion to the positions involved rather than to the length of the archive.
+ *
+ * Bitmaps are built by adding positions in ascending order and are not changed after; union and
+ * intersection return new bitmaps.
+ */
+public class GameBitmap {
+
+	private static final int ARRAY_MAX = 4096;
+	private static final int CHUNK_BITS = 16, LOW_MASK = (1 << CHUNK_BITS) - 1;
+
+	private int[] keys = new int[4];	// High bits of each chunk, ascending
+	private Container[] containers = new Container[4];
+	private int numChunks;
+	private int last = -1;	// Last position added
+
+	// Adds a position after (or equal to) the last one added.
+	void add(int position)
+	{
+		if (position < last)
+			throw new IllegalArgumentException("Positions must be added in ascending order.");
+		if (position == last) return;
+		last = position;
+		int key = position >>> CHUNK_BITS;
+		if (numChunks == 0 || keys[numChunks - 1] != key)
+			append(key, new ArrayContainer());
+		containers[numChunks - 1] = containers[numChunks - 1].add(position & LOW_MASK);
+	}
+
+	private void append(int key, Container container)
+	{
+		if (numChunks == keys.length)
+		{
+			keys = Arrays.copyOf(keys, 2 * numChunks);
+			containers = Arrays.copyOf(containers, 2 * numChunks);
+		}
+		keys[numChunks] = key;
+		containers[numChunks] = container;
+		numChunks++;
+	}
+
+	public boolean contains(int position)
+	{
+		int chunk = Arrays.binarySearch(keys, 0, numChunks, position >>> CHUNK_BITS);
+		return chunk >= 0 && containers[chunk].contains(position & LOW_MASK);
+	}
+
+	public int cardinality()
+	{
+		int cardinality = 0;
+		for (int chunk = 0; chunk < numChunks; chunk++)
+			cardinality += containers[chunk].cardinality();
+		return cardinality;
+	}
+
+	// Passes each position in [from, to), in ascending order, to the action.
+	public void forEach(int from, int to, IntConsumer action)
+	{
+		if (from >= to) return;
+		int chunk = Arrays.binarySearch(keys, 0, numChunks, from >>> CHUNK_BITS);
+		if (chunk < 0) chunk = -chunk - 1;
+		for (; chunk < numChunks; chunk++)
+		{
+			int base = keys[chunk] << CHUNK_BITS;
+			if (base >= to) break;
+			int lowFrom = Math.max(from - base, 0), lowTo = (int) Math.min((long) to - base, LOW_MASK + 1);
+			containers[chunk].forEach(base, lowFrom, lowTo, action);
+		}
+	}
+
+	// The positions in this bitmap or the other.
+	public GameBitmap or(GameBitmap other)
+	{
+		GameBitmap union = new GameBitmap();
+		int i = 0, j = 0;
+		while (i < numChunks || j < other.numChunks)
+		{
+			int key = i == numChunks ? Integer.MAX_VALUE : keys[i];
+			int otherKey = j == other.numChunks ? Integer.MAX_VALUE : other.keys[j];
+			if (key < otherKey)
+				union.append(key, containers[i++]);
+			else if (otherKey < key)
+				union.append(otherKey, other.containers[j++]);
+			else
+				union.append(key, containers[i++].or(other.containers[j++]));
+		}
+		union.last = Math.max(last, other.last);
+		return union;
+	}
+
+	// The positions in any of the bitmaps, merged pairwise so that each merge is of similar sizes.
+	public static GameBitmap or(List<GameBitmap> bitmaps)
+	{
+		if (bitmaps.isEmpty()) return new GameBitmap();
+		GameBitmap[] level = bitmaps.toArray(new GameBitmap[bitmaps.size()]);
+		int count = level.length;
+		while (count > 1)
+		{
+			int merged = 0;
+			for (int k = 0; k < count; k += 2)
+				level[merged++] = k + 1 < count ? level[k].or(level[k + 1]) : level[k];
+			count = merged;
+		}
+		return level[0];
+	}
+
+	// The positions in both this bitmap and the other.
+	public GameBitmap and(GameBitmap other)
+	{
+		GameBitmap intersection = new GameBitmap();
+		int i = 0, j = 0;
+		while (i < numChunks && j < other.numChunks)
+		{
+			if (keys[i] < other.keys[j])
+				i++;
+			else if (other.keys[j] < keys[i])
+				j++;
+			else
+			{
+				Container both = containers[i].and(other.containers[j]);
+				if (both.cardinality() > 0)
+				{
+					intersection.append(keys[i], both);
+					intersection.last = (keys[i] << CHUNK_BITS) + both.last();
+				}
+				i++;
+				j++;
+			}
+		}
+		return intersection;
+	}
+
+	/* One chunk's low bits. Containers shared between bitmaps (e.g. by or()) are never changed:
+	 * add() is called only while a bitmap is being built, on containers it created. */
+	private static abstract class Container
+	{
+		// Adds a low value above those present, returning the container that holds the result.
+		abstract Container add(int low);
+		abstract boolean contains(int low);
+		abstract int cardinality();
+		abstract int last();
+		abstract void forEach(int base, int lowFrom, int lowTo, IntConsumer action);
+
+		Container or(Container other)
+		{
+			if (this instanceof ArrayContainer && other instanceof ArrayContainer
+					&& cardinality() + other.cardinality() <= ARRAY_MAX)
+				return ((ArrayContainer) this).merge((ArrayContainer) other);
+			BitmapContainer union = toBitmap();
+			union.orWith(other);
+			return union;
+		}
+
+		Container and(Container other)
+		{
+			if (this instanceof ArrayContainer)
+				return ((ArrayContainer) this).filter(other);
+			if (other instanceof ArrayContainer)
+				return ((ArrayContainer) other).filter(this);
+			return ((BitmapContainer) this).intersect((BitmapContainer) other);
+		}
+
+		abstract BitmapContainer toBitmap();
+	}
+
+	private static final class ArrayContainer extends Container
+	{
+		private char[] values = new char[4];
+		private int size;
+
+		@Override
+		Container add(int low)
+		{
+			if (size == ARRAY_MAX)
+				return toBitmap().add(low);
+			if (size == values.length)
+				values = Arrays.copyOf(values, Math.min(2 * size, ARRAY_MAX));
+			values[size++] = (char) low;
+			return this;
+		}
+
+		@Override
+		boolean contains(int low)
+		{
+			return Arrays.binarySearch(values, 0, size, (char) low) >= 0;
+		}
+
+		@Override
+		int cardinality()
+		{
+			return size;
+		}
+
+		@Override
+		int last()
+		{
+			return values[size - 1];
+		}
+
+		@Override
+		void forEach(int base, int lowFrom, int lowTo, IntConsumer action)
+		{
+			int k = Arrays.binarySearch(values, 0, size, (char) lowFrom);
+			if (k < 0) k = -k - 1;
+			for (; k < size && values[k] < lowTo; k++)
+				action.accept(base + values[k]);
+		}
+
+		// Sorted union with another array, which together with this one has at most ARRAY_MAX values.
+		ArrayContainer merge(ArrayContainer other)
+		{
+			ArrayContainer union = new ArrayContainer();
+			union.values = new char[size + other.size];
+			int i = 0, j = 0;
+			while (i < size || j < other.size)
+			{
+				char value;
+				if (j == other.size || (i < size && values[i] < other.values[j]))
+					value = values[i++];
+				else if (i == size || other.values[j] < values[i])
+					value = other.values[j++];
+				else
+				{
+					value = values[i++];
+					j++;
+				}
+				union.values[union.size++] = value;
+			}
+			return union;
+		}
+
+		// The values of this array also in the other container.
+		ArrayContainer filter(Container other)
+		{
+			ArrayContainer intersection = new ArrayContainer();
+			intersection.values = new char[Math.max(size, 1)];
+			for (int k = 0; k < size; k++)
+			{
+				if (other.contains(values[k]))
+					intersection.values[intersection.size++] = values[k];
+			}
+			return intersection;
+		}
+
+		@Override
+		BitmapContainer toBitmap()
+		{
+			BitmapContainer bitmap = new BitmapContainer();
+			bitmap.orWith(this);
+			return bitmap;
+		}
+	}
+
+	private static final class BitmapContainer extends Container
+	{
+		private final long[] words = new long[(LOW_MASK + 1) >>> 6];
+		private int cardinality;
+
+		@Override
+		Container add(int low)
+		{
+			long bit = 1L << low;
+			if ((words[low >>> 6] & bit) == 0)
+			{
+				words[low >>> 6] |= bit;
+				cardinality++;
+			}
+			return this;
+		}
+
+		@Override
+		boolean contains(int low)
+		{
+			return (words[low >>> 6] & (1L << low)) != 0;
+		}
+
+		@Override
+		int cardinality()
+		{
+			return cardinality;
+		}
+
+		@Override
+		int last()
+		{
+			for (int w = words.length - 1; w >= 0; w--)
+			{
+				if (words[w] != 0)
+					return (w << 6) + 63 - Long.numberOfLeadingZeros(words[w]);
+			}
+			return -1;
+		}
+
+		@Override
+		void forEach(int base, int lowFrom, int lowTo, IntConsumer action)
+		{
+			if (lowFrom >= lowTo) return;
+			int lastWord = (lowTo - 1) >>> 6;
+			for (int w = lowFrom >>> 6; w <= lastWord; w++)
+			{
+				long bits = words[w];
+				if (w == lowFrom >>> 6) bits &= -1L << lowFrom;
+				if (w == lastWord) bits &= -1L >>> (63 - ((lowTo - 1) & 63));
+				while (bits != 0)
+				{
+					action.accept(base + (w << 6) + Long.numberOfTrailingZeros(bits));
+					bits &= bits - 1;
+				}
+			}
+		}
+
+		// Adds the other container's values to this one, which must not be shared.
+		void orWith(Container other)
+		{
+			if (other instanceof ArrayContainer)
+			{
+				ArrayContainer array = (ArrayContainer) other;
+				for (int k = 0; k < array.size; k++)
+					add(array.values[k]);
+				return;
+			}
+			long[] otherWords = ((BitmapContainer) other).words;
+			cardinality = 0;
+			for (int w = 0; w < words.length; w++)
+			{
+				words[w] |= otherWords[w];
+				cardinality += Long.bitCount(words[w]);
+			}
+		}
+
+		// The intersection, as an array if it is small enough.
+		Container intersect(BitmapContainer other)
+		{
+			BitmapContainer intersection = new BitmapContainer();
+			for (int w = 0; w < words.length; w++)
+			{
+				intersection.words[w] = words[w] & other.words[w];
+				intersection.cardinality += Long.bitCount(intersection.words[w]);
+			}
+			if (intersection.cardinality > ARRAY_MAX) return intersection;
+			ArrayContainer array = new ArrayContainer();
+			array.values = new char[Math.max(intersection.cardinality, 1)];
+			intersection.forEach(0, 0, LOW_MASK + 1, low -> array.values[array.size++] = (char) low);
+			return array;
+		}
+
+		@Override
+		BitmapContainer toBitmap()
+		{
+			BitmapContainer copy = new BitmapContainer();
+			copy.orWith(this);
+			return copy;
+		}
+	}
+}
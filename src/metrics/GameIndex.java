@@ -0,0 +1,281 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+import nodes.Competitor;
+import parse.AbstractGame;
+import parse.CFLGame;
+import parse.NBAGame;
+import parse.OWLGame;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* A league's games in canonical order (complete games before incomplete ones, each by date, as the
+ * games' natural order sorts them), indexed so that a search for games is a few lookups and a pass
+ * over the matching stretch rather than a copy of every game followed by a filter per parameter.
+ *
+ * Canonical order leaves the complete and the incomplete games each in one date-ordered segment,
+ * and each segment has its own TemporalIndex, so date (and, where the segment is in period order,
+ * period) bounds narrow each segment to a range by binary search. Each competitor's games, as
+ * competitor 1, as competitor 2 and in all, are compressed GameBitmaps: naming teams (or a division
+ * or conference) takes the union of their bitmaps, and naming both sides intersects the unions, so
+ * that a search by team visits only that team's games within the range. Otherwise the range is
+ * read a word (64 games) at a time against a bitset of playoff games. Matching games come out in
+ * canonical order, so the result needs no sort.
+ */
+public class GameIndex<Game extends AbstractGame<?>> {
+
+	private final List<Game> games;	// Canonical order
+	private final int numComplete;	// Games [0, numComplete) are complete
+	private final ToLongFunction<? super Game> period;	// Null if the league has no periods
+	private final TemporalIndex<Game> completeIndex, incompleteIndex;
+	private final long[] playoffs;	// Bit per position
+	private final CompetitorIndex competitorIndex = new CompetitorIndex();
+	// By ordinal, each competitor's positions as competitor 1, as competitor 2, and as either
+	private GameBitmap[] asCompetitor1 = new GameBitmap[0], asCompetitor2 = new GameBitmap[0];
+	private GameBitmap[] asEither = new GameBitmap[0];
+
+	GameIndex(List<Game> canonicalGames, Predicate<? super Game> isPlayoff, ToLongFunction<? super Game> period)
+	{
+		this.games = Collections.unmodifiableList(new ArrayList<>(canonicalGames));
+		this.period = period;
+		int size = games.size(), complete = 0;
+		while (complete < size && games.get(complete).isComplete())
+			complete++;
+		for (int i = complete; i < size; i++)
+		{
+			if (games.get(i).isComplete())
+				throw new IllegalArgumentException("Games are not in canonical order.");
+		}
+		numComplete = complete;
+		completeIndex = new TemporalIndex<>(games.subList(0, complete), period);
+		incompleteIndex = new TemporalIndex<>(games.subList(complete, size), period);
+
+		int numWords = (size + 63) >>> 6;
+		playoffs = new long[numWords];
+		for (int i = 0; i < size; i++)
+		{
+			Game game = games.get(i);
+			if (isPlayoff.test(game))
+				playoffs[i >>> 6] |= 1L << i;
+			int ordinal1 = ordinalOf(game.getCompetitor1()), ordinal2 = ordinalOf(game.getCompetitor2());
+			asCompetitor1[ordinal1].add(i);
+			asEither[ordinal1].add(i);
+			asCompetitor2[ordinal2].add(i);
+			asEither[ordinal2].add(i);
+		}
+	}
+
+	public static GameIndex<NBAGame> nba(List<NBAGame> games)
+	{
+		return new GameIndex<>(canonical(games), NBAGame::isPlayoffs, null);
+	}
+
+	// CFL periods are week numbers.
+	public static GameIndex<CFLGame> cfl(List<CFLGame> games)
+	{
+		return new GameIndex<>(canonical(games), CFLGame::isPlayoffs, game -> game.getWeekNumber());
+	}
+
+	// OWL periods are stage and week together (see TemporalIndex.stageAndWeek).
+	public static GameIndex<OWLGame> owl(List<OWLGame> games)
+	{
+		return new GameIndex<>(canonical(games), OWLGame::isPlayoffGame,
+				game -> TemporalIndex.stageAndWeek(game.getStageNumber(), game.getWeekNumber()));
+	}
+
+	/* The games in canonical order: sorted by date and then stably by natural order, so that games
+	 * equal in both keep the order they were read in. */
+	private static <Game extends AbstractGame<?> & Comparable<? super Game>> List<Game> canonical(List<Game> games)
+	{
+		List<Game> sorted = TemporalIndex.byDate(games);
+		sorted.sort(Comparator.naturalOrder());
+		return sorted;
+	}
+
+	// The competitor's ordinal, with empty bitmaps if the competitor is new.
+	private int ordinalOf(Competitor competitor)
+	{
+		int ordinal = competitorIndex.add(competitor);
+		if (ordinal == asCompetitor1.length)
+		{
+			int capacity = Math.max(8, 2 * ordinal);
+			asCompetitor1 = Arrays.copyOf(asCompetitor1, capacity);
+			asCompetitor2 = Arrays.copyOf(asCompetitor2, capacity);
+			asEither = Arrays.copyOf(asEither, capacity);
+		}
+		if (asCompetitor1[ordinal] == null)
+		{
+			asCompetitor1[ordinal] = new GameBitmap();
+			asCompetitor2[ordinal] = new GameBitmap();
+			asEither[ordinal] = new GameBitmap();
+		}
+		return ordinal;
+	}
+
+	public List<Game> games()
+	{
+		return games;
+	}
+
+	public int size()
+	{
+		return games.size();
+	}
+
+	// A new search of all the games, to be narrowed by the Query's methods.
+	public Query query()
+	{
+		return new Query();
+	}
+
+	/* The parameters of a search. Each method narrows the search and returns it; run() returns the
+	 * games matching all of them, in canonical order. */
+	public class Query
+	{
+		private Date startDate, endDate;	// Inclusive, or null
+		private long startPeriod = Long.MIN_VALUE, endPeriod = Long.MAX_VALUE;	// Inclusive
+		private boolean includePlayoffs = true, includeRegularSeason = true;
+		private boolean includeComplete = true, includeIncomplete = true;
+		private GameBitmap competitorGames;	// The games matching every competitor filter, or null if none
+		private Predicate<? super Game> residual;
+
+		private Query() {}
+
+		// Games on dates from start to end, inclusive. Either may be null.
+		public Query dates(Date start, Date end)
+		{
+			startDate = start;
+			endDate = end;
+			return this;
+		}
+
+		// Games in periods from start to end, inclusive (see TemporalIndex).
+		public Query periods(long start, long end)
+		{
+			if (period == null)
+				throw new RuntimeException("These games are not indexed by period.");
+			startPeriod = start;
+			endPeriod = end;
+			return this;
+		}
+
+		public Query seasonTypes(boolean includePlayoffs, boolean includeRegularSeason)
+		{
+			this.includePlayoffs = includePlayoffs;
+			this.includeRegularSeason = includeRegularSeason;
+			return this;
+		}
+
+		public Query completion(boolean includeComplete, boolean includeIncomplete)
+		{
+			this.includeComplete = includeComplete;
+			this.includeIncomplete = includeIncomplete;
+			return this;
+		}
+
+		/* Games in which one of the competitors is competitor 1 (if asCompetitor1) or competitor 2
+		 * (if asCompetitor2). Each call narrows the search further. */
+		public Query competitors(Collection<? extends Competitor> competitors, boolean asCompetitor1,
+				boolean asCompetitor2)
+		{
+			List<GameBitmap> bitmaps = new ArrayList<>();
+			for (Competitor competitor: competitors)
+			{
+				int ordinal = competitorIndex.ordinalOf(competitor);
+				if (ordinal < 0) continue;
+				if (asCompetitor1 && asCompetitor2)
+					bitmaps.add(asEither[ordinal]);
+				else if (asCompetitor1)
+					bitmaps.add(GameIndex.this.asCompetitor1[ordinal]);
+				else if (asCompetitor2)
+					bitmaps.add(GameIndex.this.asCompetitor2[ordinal]);
+			}
+			GameBitmap union = GameBitmap.or(bitmaps);
+			competitorGames = competitorGames == null ? union : competitorGames.and(union);
+			return this;
+		}
+
+		// Games passing a test the indexes cannot answer, checked only for otherwise matching games.
+		public Query where(Predicate<? super Game> test)
+		{
+			Predicate<? super Game> previous = residual;
+			residual = previous == null ? test : (Predicate<Game>) game -> previous.test(game) && test.test(game);
+			return this;
+		}
+
+		public GameList<Game> run()
+		{
+			GameList<Game> result = new GameList<>(new ArrayList<Game>());
+			if (includeComplete)
+				collect(completeIndex, 0, result);
+			if (includeIncomplete)
+				collect(incompleteIndex, numComplete, result);
+			return result;
+		}
+
+		// Adds the matching games of the segment starting at offset.
+		private void collect(TemporalIndex<Game> segment, int offset, List<Game> result)
+		{
+			if (!includePlayoffs && !includeRegularSeason) return;
+			int from = startDate == null ? 0 : segment.startOfDate(startDate);
+			int to = endDate == null ? segment.size() : segment.endOfDate(endDate);
+			boolean periodBounded = startPeriod != Long.MIN_VALUE || endPeriod != Long.MAX_VALUE;
+			Predicate<? super Game> test = residual;
+			if (periodBounded && segment.isPeriodOrdered())
+			{
+				from = Math.max(from, segment.startOfPeriod(startPeriod));
+				to = Math.min(to, segment.endOfPeriod(endPeriod));
+			}
+			else if (periodBounded)
+			{	// Periods out of order: test each game instead.
+				long start = startPeriod, end = endPeriod;
+				Predicate<Game> inPeriods = game -> period.applyAsLong(game) >= start && period.applyAsLong(game) <= end;
+				test = test == null ? inPeriods : inPeriods.and(test);
+			}
+			from += offset;
+			to += offset;
+			if (from >= to) return;
+
+			Predicate<? super Game> residualTest = test;
+			if (competitorGames != null)
+			{	// Visit only the competitors' games.
+				competitorGames.forEach(from, to, position ->
+				{
+					boolean isPlayoff = (playoffs[position >>> 6] & (1L << position)) != 0;
+					if (isPlayoff ? !includePlayoffs : !includeRegularSeason) return;
+					Game game = games.get(position);
+					if (residualTest == null || residualTest.test(game))
+						result.add(game);
+				});
+				return;
+			}
+			for (int word = from >>> 6; word <= (to - 1) >>> 6; word++)
+			{
+				long bits = -1L;
+				if (word == from >>> 6) bits &= -1L << from;
+				if (word == (to - 1) >>> 6) bits &= -1L >>> (63 - ((to - 1) & 63));
+				if (!includePlayoffs) bits &= ~playoffs[word];
+				if (!includeRegularSeason) bits &= playoffs[word];
+				while (bits != 0)
+				{
+					int position = (word << 6) + Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+					Game game = games.get(position);
+					if (test == null || test.test(game))
+						result.add(game);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,323 @@
+package metrics;
+
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToLongFunction;
+
+import nodes.Competitor;
+import parse.AbstractGame;
+import parse.CFLGame;
+import parse.NBAGame;
+import parse.OWLGame;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Glicko-2 ratings (Mark Glickman, "Example of the Glicko-2 system"), updated once per rating
+ * period rather than once per game.
+ *
+ * A rating period is a run of consecutive games with the same period key: the calendar day for the
+ * NBA, the week for the CFL, the stage and week for the OWL. Every competitor in a period is rated
+ * against its opponents' ratings from the start of the period. Each period therefore takes one pass
+ * over its games, which accumulates each competitor's variance and improvement sums in primitive
+ * arrays, and then updates each competitor independently. The volatility iteration in that update
+ * is the costly part, so large leagues run it in parallel across competitors on a fork/join pool.
+ *
+ * Wins score 1, ties 0.5, and losses 0. Incomplete games are skipped. Ratings and deviations are
+ * reported on the Glicko scale (average 1500).
+ */
+public class Glicko2<Game extends AbstractGame<?>> {
+
+	public static final double DEFAULT_DEVIATION = 350;
+	public static final double DEFAULT_VOLATILITY = 0.06;
+	public static final double DEFAULT_TAU = 0.5;
+	private static final double SCALE = 173.7178;	// Glicko points per Glicko-2 unit
+	private static final double CONVERGENCE = 0.000001;	// Tolerance of the volatility iteration
+	// Fewest competitors updated by one task when a period's updates are split across threads
+	private static final int MIN_PARALLEL_COMPETITORS = 64;
+
+	private GameList<Game> gameList;
+	private ToLongFunction<? super Game> period;
+	private double initialRating;
+	private double tau = DEFAULT_TAU;	// Constrains changes in volatility
+	private int numPeriods;
+
+	// Complete games, as competitor ordinals and competitor 1's score
+	private CompetitorIndex competitorIndex;
+	private int[] competitor1s, competitor2s;
+	private double[] scores1;
+	private long[] periods;
+
+	// Each competitor's state on the Glicko-2 scale, by ordinal
+	private double[] mu, phi, sigma;
+	// Per-period scratch: g(phi), and each competitor's sums over its games in the period
+	private double[] weights, varianceSums, improvementSums;
+	private boolean[] played;
+
+	Glicko2(GameList<Game> gameList, ToLongFunction<? super Game> period, double initialRating)
+	{
+		this.gameList = gameList;
+		this.period = period;
+		this.initialRating = initialRating;
+	}
+
+	// NBA rating periods are calendar days.
+	public static Glicko2<NBAGame> nba(GameList<NBAGame> gameList, double initialRating)
+	{
+		ZoneId zone = ZoneId.systemDefault();
+		return new Glicko2<>(gameList,
+				game -> game.getDate().toInstant().atZone(zone).toLocalDate().toEpochDay(), initialRating);
+	}
+
+	// CFL rating periods are weeks.
+	public static Glicko2<CFLGame> cfl(GameList<CFLGame> gameList, double initialRating)
+	{
+		return new Glicko2<>(gameList, game -> game.getWeekNumber(), initialRating);
+	}
+
+	// OWL rating periods are the weeks of each stage.
+	public static Glicko2<OWLGame> owl(GameList<OWLGame> gameList, double initialRating)
+	{
+		return new Glicko2<>(gameList,
+				game -> TemporalIndex.stageAndWeek(game.getStageNumber(), game.getWeekNumber()), initialRating);
+	}
+
+	public void setTau(double tau)
+	{
+		if (!(tau > 0))
+			throw new IllegalArgumentException("Tau must be positive.");
+		this.tau = tau;
+	}
+
+	public double getTau()
+	{
+		return tau;
+	}
+
+	// Rates all the games in gameList, on the common fork/join pool.
+	public void process()
+	{
+		process(ForkJoinPool.commonPool());
+	}
+
+	public void process(ForkJoinPool pool)
+	{
+		loadGames();
+		numPeriods = 0;
+		for (int start = 0, end; start < periods.length; start = end)
+		{
+			for (end = start + 1; end < periods.length && periods[end] == periods[start]; end++);
+			ratePeriod(start, end, pool);
+			numPeriods++;
+		}
+	}
+
+	// Assigns ordinals, keeps the complete games as primitive arrays, and sets starting values.
+	private void loadGames()
+	{
+		competitorIndex = CompetitorIndex.fromGames(gameList);
+		int numCompetitors = competitorIndex.size();
+
+		int numComplete = 0;
+		for (Game game: gameList)
+		{
+			if (game.isComplete()) numComplete++;
+		}
+		competitor1s = new int[numComplete];
+		competitor2s = new int[numComplete];
+		scores1 = new double[numComplete];
+		periods = new long[numComplete];
+		int g = 0;
+		for (Game game: gameList)
+		{
+			if (!game.isComplete()) continue;
+			competitor1s[g] = competitorIndex.ordinalOf(game.getCompetitor1());
+			competitor2s[g] = competitorIndex.ordinalOf(game.getCompetitor2());
+			double score1 = game.getScore1().doubleValue(), score2 = game.getScore2().doubleValue();
+			scores1[g] = score1 > score2 ? 1 : score1 < score2 ? 0 : 0.5;
+			periods[g] = period.applyAsLong(game);
+			g++;
+		}
+
+		mu = new double[numCompetitors];
+		phi = new double[numCompetitors];
+		sigma = new double[numCompetitors];
+		for (int i = 0; i < numCompetitors; i++)
+		{
+			mu[i] = (initialRating - 1500) / SCALE;
+			phi[i] = DEFAULT_DEVIATION / SCALE;
+			sigma[i] = DEFAULT_VOLATILITY;
+		}
+		weights = new double[numCompetitors];
+		varianceSums = new double[numCompetitors];
+		improvementSums = new double[numCompetitors];
+		played = new boolean[numCompetitors];
+	}
+
+	// Rates the games [from, to), which make up one rating period.
+	private void ratePeriod(int from, int to, ForkJoinPool pool)
+	{
+		int numCompetitors = mu.length;
+		for (int i = 0; i < numCompetitors; i++)
+		{
+			weights[i] = 1 / Math.sqrt(1 + 3 * phi[i] * phi[i] / (Math.PI * Math.PI));
+			varianceSums[i] = 0;
+			improvementSums[i] = 0;
+			played[i] = false;
+		}
+
+		for (int g = from; g < to; g++)
+		{
+			int index1 = competitor1s[g], index2 = competitor2s[g];
+			double weight1 = weights[index1], weight2 = weights[index2];
+			double expected1 = 1 / (1 + Math.exp(-weight2 * (mu[index1] - mu[index2])));
+			double expected2 = 1 / (1 + Math.exp(-weight1 * (mu[index2] - mu[index1])));
+			varianceSums[index1] += weight2 * weight2 * expected1 * (1 - expected1);
+			improvementSums[index1] += weight2 * (scores1[g] - expected1);
+			varianceSums[index2] += weight1 * weight1 * expected2 * (1 - expected2);
+			improvementSums[index2] += weight1 * ((1 - scores1[g]) - expected2);
+			played[index1] = true;
+			played[index2] = true;
+		}
+
+		if (numCompetitors < 2 * MIN_PARALLEL_COMPETITORS)
+			updateCompetitors(0, numCompetitors);
+		else
+			pool.invoke(new UpdateTask(0, numCompetitors));
+	}
+
+	// Applies the period's sums to competitors [from, to). Each competitor touches only its own slots.
+	private void updateCompetitors(int from, int to)
+	{
+		for (int i = from; i < to; i++)
+		{
+			if (!played[i])
+			{	// A competitor without games only grows less certain.
+				phi[i] = Math.sqrt(phi[i] * phi[i] + sigma[i] * sigma[i]);
+				continue;
+			}
+			double variance = 1 / varianceSums[i];
+			double improvement = variance * improvementSums[i];
+			double newSigma = volatility(phi[i], sigma[i], variance, improvement);
+			double preRatingPhi = Math.sqrt(phi[i] * phi[i] + newSigma * newSigma);
+			double newPhi = 1 / Math.sqrt(1 / (preRatingPhi * preRatingPhi) + 1 / variance);
+			mu[i] += newPhi * newPhi * improvementSums[i];
+			phi[i] = newPhi;
+			sigma[i] = newSigma;
+		}
+	}
+
+	// Solves for the new volatility with the Illinois algorithm (step 5 of Glickman's example).
+	private double volatility(double phi, double sigma, double variance, double improvement)
+	{
+		double a = Math.log(sigma * sigma);
+		double phi2 = phi * phi, improvement2 = improvement * improvement;
+
+		double A = a, B;
+		if (improvement2 > phi2 + variance)
+		{
+			B = Math.log(improvement2 - phi2 - variance);
+		}
+		else
+		{
+			int k = 1;
+			while (volatilityTarget(a - k * tau, a, phi2, variance, improvement2) < 0) { k++; }
+			B = a - k * tau;
+		}
+
+		double fA = volatilityTarget(A, a, phi2, variance, improvement2);
+		double fB = volatilityTarget(B, a, phi2, variance, improvement2);
+		while (Math.abs(B - A) > CONVERGENCE)
+		{
+			double C = A + (A - B) * fA / (fB - fA);
+			double fC = volatilityTarget(C, a, phi2, variance, improvement2);
+			if (fC * fB <= 0)
+			{
+				A = B;
+				fA = fB;
+			}
+			else { fA /= 2; }
+			B = C;
+			fB = fC;
+		}
+		return Math.exp(A / 2);
+	}
+
+	private double volatilityTarget(double x, double a, double phi2, double variance, double improvement2)
+	{
+		double ex = Math.exp(x);
+		double denominator = phi2 + variance + ex;
+		return ex * (improvement2 - phi2 - variance - ex) / (2 * denominator * denominator)
+				- (x - a) / (tau * tau);
+	}
+
+	// Updates the competitors [from, to), splitting the range across the pool.
+	private class UpdateTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 5803187012953440652L;
+		private int from, to;
+
+		UpdateTask(int from, int to)
+		{
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from < 2 * MIN_PARALLEL_COMPETITORS)
+			{
+				updateCompetitors(from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new UpdateTask(from, mid), new UpdateTask(mid, to));
+		}
+	}
+
+	// Number of rating periods in the last call to process().
+	public int numPeriods()
+	{
+		return numPeriods;
+	}
+
+	// Returns each competitor's rating on the Glicko scale.
+	public Map<Competitor, Double> getRatings()
+	{
+		checkProcessed();
+		Map<Competitor, Double> ratingsMap = new HashMap<>();
+		for (int i = 0; i < mu.length; i++)
+			ratingsMap.put(competitorIndex.competitor(i), 1500 + SCALE * mu[i]);
+		return ratingsMap;
+	}
+
+	// Returns each competitor's rating deviation on the Glicko scale.
+	public Map<Competitor, Double> getDeviations()
+	{
+		checkProcessed();
+		Map<Competitor, Double> deviationsMap = new HashMap<>();
+		for (int i = 0; i < phi.length; i++)
+			deviationsMap.put(competitorIndex.competitor(i), SCALE * phi[i]);
+		return deviationsMap;
+	}
+
+	public Map<Competitor, Double> getVolatilities()
+	{
+		checkProcessed();
+		Map<Competitor, Double> volatilitiesMap = new HashMap<>();
+		for (int i = 0; i < sigma.length; i++)
+			volatilitiesMap.put(competitorIndex.competitor(i), sigma[i]);
+		return volatilitiesMap;
+	}
+
+	private void checkProcessed()
+	{
+		if (mu == null)
+			throw new RuntimeException("No games have been processed.");
+	}
+}
@@ -0,0 +1,80 @@
+package metrics;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import parse.AbstractGame;
+import parse.GameReader;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* One league's data, loaded at most once and only when first asked for. preload() starts the
+ * reader on a background thread and returns at once, so a league known to be needed can load while
+ * the user is still typing; reader() and index() wait for it (starting it first if need be). The
+ * GameIndex used to search the games is built on the background thread as soon as the reader is done.
+ *
+ * Creating a LeagueSource reads nothing, so startup does not depend on how many leagues there are.
+ */
+class LeagueSource<Reader extends GameReader<Game, ?, ?>, Game extends AbstractGame<?>> {
+
+	private final String name;
+	private final Callable<Reader> loader;
+	private final Function<List<Game>, GameIndex<Game>> indexer;
+	private CompletableFuture<Reader> reader = null;
+	private CompletableFuture<GameIndex<Game>> index = null;
+
+	LeagueSource(String name, Callable<Reader> loader, Function<List<Game>, GameIndex<Game>> indexer)
+	{
+		this.name = name;
+		this.loader = loader;
+		this.indexer = indexer;
+	}
+
+	// Starts loading in the background, unless loading has already started.
+	synchronized void preload()
+	{
+		if (reader != null) return;
+		reader = CompletableFuture.supplyAsync(() ->
+		{
+			try
+			{
+				return loader.call();
+			}
+			catch (Exception ex)
+			{
+				throw new CompletionException(ex);
+			}
+		});
+		index = reader.thenApply(loaded -> indexer.apply(loaded.gameList()));
+	}
+
+	Reader reader()
+	{
+		preload();
+		return await(reader);
+	}
+
+	// The league's games, indexed for the game-list builders.
+	GameIndex<Game> index()
+	{
+		preload();
+		return await(index);
+	}
+
+	private <T> T await(CompletableFuture<T> future)
+	{
+		try
+		{
+			return future.join();
+		}
+		catch (CompletionException ex)
+		{
+			throw new RuntimeException(String.format("Could not load the %s data.", name), ex.getCause());
+		}
+	}
+}
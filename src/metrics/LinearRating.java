@@ -0,0 +1,213 @@
+package metrics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import nodes.Competitor;
+import parse.AbstractGame;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* A rating given by the solution of a linear system over a list's completed games, in which each
+ * game between competitors i and j adds 1 to the diagonal entries (i, i) and (j, j) and subtracts
+ * 1 from (i, j) and (j, i). Subclasses add a constant to the diagonal and choose what each game
+ * adds to the right-hand side (see MasseyRating and ColleyRating). Only competitors with a
+ * completed game are rated.
+ *
+ * The completed games are kept as primitive arrays of competitor ordinals and right-hand-side
+ * values, from which the system is assembled as a SparseMatrix and solved by preconditioned
+ * conjugate gradient. When games have only been added to the end of the list since the last
+ * solve(), the next one reads just the new games, updates the existing matrix in place if their
+ * pairings have been seen before, and starts the solver from the last solution.
+ */
+public abstract class LinearRating<Game extends AbstractGame<?>> {
+
+	public static final double DEFAULT_TOLERANCE = 1.0e-10;
+
+	private GameList<Game> gameList;
+	private double tolerance = DEFAULT_TOLERANCE;
+	private int iterations;
+
+	private CompetitorIndex competitorIndex = new CompetitorIndex();
+	private double[] solution = new double[0];	// By ordinal
+
+	// The list's games as of the last solve, to tell whether games have only been added since
+	private AbstractGame<?>[] loadedGames = new AbstractGame<?>[16];
+	private int numLoaded;
+	// The complete games among them, as ordinals and competitor 1's right-hand-side value
+	private int[] competitor1s = new int[16], competitor2s = new int[16];
+	private double[] gameValues = new double[16];
+	private int numComplete;
+
+	private SparseMatrix matrix;
+	private double[] rightHandSide;
+
+	LinearRating(GameList<Game> gameList)
+	{
+		this.gameList = gameList;
+	}
+
+	// Added to every diagonal entry.
+	protected abstract double diagonalShift();
+
+	// Weight of the all-ones term added to the matrix; nonzero if the matrix alone is singular.
+	protected abstract double onesWeight();
+
+	// Every competitor's right-hand-side entry before games are counted.
+	protected abstract double baseValue();
+
+	// What a complete game adds to competitor 1's right-hand-side entry. Competitor 2's gets the negation.
+	protected abstract double gameValue(double score1, double score2);
+
+	// Starting guess for a competitor not in the last solution.
+	protected abstract double startingValue();
+
+	// Solves the system for the list's completed games.
+	public void solve()
+	{
+		Map<Competitor, Double> lastRatings = null;
+		if (!hasOnlyNewGames())
+		{	// Games were removed or replaced. Start over, with the last ratings as the guess.
+			lastRatings = getRatings();
+			competitorIndex = new CompetitorIndex();
+			solution = new double[0];
+			numLoaded = 0;
+			numComplete = 0;
+			matrix = null;
+		}
+		int loadedCompetitors = competitorIndex.size(), loadedComplete = numComplete;
+		loadNewGames();
+		int numCompetitors = competitorIndex.size();
+
+		if (matrix == null || numCompetitors > loadedCompetitors || !addToSystem(loadedComplete))
+			buildSystem();
+
+		int solved = solution.length;
+		solution = Arrays.copyOf(solution, numCompetitors);
+		for (int i = solved; i < numCompetitors; i++)
+		{
+			Double guess = lastRatings == null ? null : lastRatings.get(competitorIndex.competitor(i));
+			solution[i] = guess == null ? startingValue() : guess;
+		}
+		iterations = ConjugateGradient.solve(matrix, onesWeight(), rightHandSide, solution, tolerance,
+				Math.max(100, 10 * numCompetitors));
+	}
+
+	// True if the games loaded so far are still the first games of the list.
+	private boolean hasOnlyNewGames()
+	{
+		if (gameList.size() < numLoaded) return false;
+		for (int i = 0; i < numLoaded; i++)
+		{
+			if (gameList.get(i) != loadedGames[i]) return false;
+		}
+		return true;
+	}
+
+	// Reads the games added to the list since the last solve.
+	private void loadNewGames()
+	{
+		for (; numLoaded < gameList.size(); numLoaded++)
+		{
+			Game game = gameList.get(numLoaded);
+			if (numLoaded == loadedGames.length)
+				loadedGames = Arrays.copyOf(loadedGames, numLoaded * 2);
+			loadedGames[numLoaded] = game;
+			if (!game.isComplete()) continue;
+
+			if (numComplete == competitor1s.length)
+			{
+				competitor1s = Arrays.copyOf(competitor1s, numComplete * 2);
+				competitor2s = Arrays.copyOf(competitor2s, numComplete * 2);
+				gameValues = Arrays.copyOf(gameValues, numComplete * 2);
+			}
+			competitor1s[numComplete] = competitorIndex.add(game.getCompetitor1());
+			competitor2s[numComplete] = competitorIndex.add(game.getCompetitor2());
+			gameValues[numComplete] = gameValue(game.getScore1().doubleValue(), game.getScore2().doubleValue());
+			numComplete++;
+		}
+	}
+
+	// Assembles the matrix and right-hand side from all the complete games.
+	private void buildSystem()
+	{
+		int numCompetitors = competitorIndex.size();
+		// One diagonal entry per competitor and two off-diagonal entries per game
+		int[] rows = new int[2 * numComplete + numCompetitors], columns = new int[rows.length];
+		double[] values = new double[rows.length];
+		double[] diagonal = new double[numCompetitors];
+		rightHandSide = new double[numCompetitors];
+		Arrays.fill(diagonal, diagonalShift());
+		Arrays.fill(rightHandSide, baseValue());
+		int count = 0;
+		for (int g = 0; g < numComplete; g++)
+		{
+			int index1 = competitor1s[g], index2 = competitor2s[g];
+			diagonal[index1]++;
+			diagonal[index2]++;
+			count = addEntry(rows, columns, values, count, index1, index2, -1);
+			count = addEntry(rows, columns, values, count, index2, index1, -1);
+			rightHandSide[index1] += gameValues[g];
+			rightHandSide[index2] -= gameValues[g];
+		}
+		for (int i = 0; i < numCompetitors; i++)
+			count = addEntry(rows, columns, values, count, i, i, diagonal[i]);
+		matrix = SparseMatrix.fromEntries(numCompetitors, rows, columns, values, count);
+	}
+
+	private static int addEntry(int[] rows, int[] columns, double[] values, int count, int row,
+			int column, double value)
+	{
+		rows[count] = row;
+		columns[count] = column;
+		values[count] = value;
+		return count + 1;
+	}
+
+	/* Adds the complete games from the given one on to the existing system. Returns false if a
+	 * game pairs competitors with no entry in the matrix, in which case it must be rebuilt. */
+	private boolean addToSystem(int fromGame)
+	{
+		for (int g = fromGame; g < numComplete; g++)
+		{
+			int index1 = competitor1s[g], index2 = competitor2s[g];
+			if (!matrix.add(index1, index2, -1)) return false;
+			matrix.add(index2, index1, -1);
+			matrix.add(index1, index1, 1);
+			matrix.add(index2, index2, 1);
+			rightHandSide[index1] += gameValues[g];
+			rightHandSide[index2] -= gameValues[g];
+		}
+		return true;
+	}
+
+	public Map<Competitor, Double> getRatings()
+	{
+		Map<Competitor, Double> ratingsMap = new HashMap<>();
+		for (int i = 0; i < solution.length; i++)
+			ratingsMap.put(competitorIndex.competitor(i), solution[i]);
+		return ratingsMap;
+	}
+
+	// Iterations taken by the last call to solve().
+	public int iterations()
+	{
+		return iterations;
+	}
+
+	// Sets the relative residual at which the solver stops.
+	public void setTolerance(double tolerance)
+	{
+		if (!(tolerance > 0))
+			throw new IllegalArgumentException("Tolerance must be positive.");
+		this.tolerance = tolerance;
+	}
+
+	public double getTolerance()
+	{
+		return tolerance;
+	}
+}
@@ -0,0 +1,189 @@
+package metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import nodes.Competitor;
+import parse.AbstractGame;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Ranks competitors by the stationary distribution of a random walk over the win graph, as 
+ * PageRank ranks web pages: every completed game adds weighted edges toward the better-performing
+ * competitor, and a competitor's rating is the long-run share of time the walk spends on it.
+ *
+ * Edges are weighted either by margin (one edge from loser to winner, weighted by the margin of
+ * victory; ties add nothing) or by score share (an edge each way, each weighted by the share of the
+ * points scored by the competitor it points to). Each competitor's outgoing weights are normalized
+ * into transition probabilities. With probability 1 - damping, and always from a competitor
+ * without outgoing edges (an unbeaten one, by margin), the walk jumps to a competitor at random.
+ *
+ * The transposed transition matrix is held as a SparseMatrix, and the distribution found by power
+ * iteration, with the matrix-vector product split across a fork/join pool for large leagues, until
+ * it changes by less than the threshold (in total) between iterations. Recomputing after games are
+ * added starts from the last distribution, which is usually close.
+ */
+public class MarkovRating<Game extends AbstractGame<?>> {
+
+	public enum Weighting { MARGIN, SCORE_SHARE; }
+
+	public static final double DEFAULT_DAMPING = 0.85;
+	public static final double DEFAULT_THRESHOLD = 1.0e-12;
+	private static final int MAX_ITERATIONS = 1000;
+
+	private GameList<Game> gameList;
+	private Weighting weighting;
+	private double damping = DEFAULT_DAMPING;
+	private double threshold = DEFAULT_THRESHOLD;
+	private int iterations;
+	private Map<Competitor, Double> ratings = new HashMap<>();
+
+	MarkovRating(GameList<Game> gameList, Weighting weighting)
+	{
+		this.gameList = gameList;
+		this.weighting = weighting;
+	}
+
+	public void compute()
+	{
+		compute(ForkJoinPool.commonPool());
+	}
+
+	public void compute(ForkJoinPool pool)
+	{
+		// Edges of the completed games, as ordinals. Each game adds up to two.
+		CompetitorIndex competitorIndex = new CompetitorIndex();
+		int[] sources = new int[2 * gameList.size()], targets = new int[sources.length];
+		double[] weights = new double[sources.length];
+		int numEdges = 0;
+		for (Game game: gameList)
+		{
+			if (!game.isComplete()) continue;
+			int index1 = competitorIndex.add(game.getCompetitor1());
+			int index2 = competitorIndex.add(game.getCompetitor2());
+			double score1 = game.getScore1().doubleValue(), score2 = game.getScore2().doubleValue();
+			if (weighting == Weighting.MARGIN)
+			{
+				if (score1 > score2)
+					numEdges = addEdge(sources, targets, weights, numEdges, index2, index1, score1 - score2);
+				else if (score2 > score1)
+					numEdges = addEdge(sources, targets, weights, numEdges, index1, index2, score2 - score1);
+			}
+			else
+			{
+				double total = score1 + score2;
+				double share1 = total > 0 ? score1 / total : 0.5;
+				numEdges = addEdge(sources, targets, weights, numEdges, index2, index1, share1);
+				numEdges = addEdge(sources, targets, weights, numEdges, index1, index2, 1 - share1);
+			}
+		}
+		int n = competitorIndex.size();
+		if (n == 0)
+		{
+			ratings = new HashMap<>();
+			iterations = 0;
+			return;
+		}
+
+		// Normalize each competitor's outgoing weights, and transpose: row j lists the edges into j.
+		double[] outgoing = new double[n];
+		for (int e = 0; e < numEdges; e++)
+			outgoing[sources[e]] += weights[e];
+		for (int e = 0; e < numEdges; e++)
+			weights[e] /= outgoing[sources[e]];
+		SparseMatrix transitions = SparseMatrix.fromEntries(n, targets, sources, weights, numEdges);
+		int[] dangling = new int[n];
+		int numDangling = 0;
+		for (int i = 0; i < n; i++)
+		{
+			if (outgoing[i] == 0) dangling[numDangling++] = i;
+		}
+
+		// Start from the last distribution, where it applies, and iterate.
+		double[] rank = new double[n], next = new double[n];
+		double total = 0;
+		for (int i = 0; i < n; i++)
+		{
+			rank[i] = ratings.getOrDefault(competitorIndex.competitor(i), 1.0 / n);
+			total += rank[i];
+		}
+		for (int i = 0; i < n; i++)
+			rank[i] /= total;
+
+		iterations = 0;
+		double change = Double.POSITIVE_INFINITY;
+		while (change >= threshold && iterations < MAX_ITERATIONS)
+		{
+			iterations++;
+			transitions.multiply(rank, next, pool);
+			double danglingShare = 0;
+			for (int k = 0; k < numDangling; k++)
+				danglingShare += rank[dangling[k]];
+			double jump = (damping * danglingShare + 1 - damping) / n;
+			change = 0;
+			for (int i = 0; i < n; i++)
+			{
+				next[i] = damping * next[i] + jump;
+				change += Math.abs(next[i] - rank[i]);
+			}
+			double[] swap = rank;
+			rank = next;
+			next = swap;
+		}
+
+		ratings = new HashMap<>();
+		for (int i = 0; i < n; i++)
+			ratings.put(competitorIndex.competitor(i), rank[i]);
+	}
+
+	// Adds an edge, unless its weight is 0 (as toward a shut-out loser), which no walk would take.
+	private static int addEdge(int[] sources, int[] targets, double[] weights, int count, int source,
+			int target, double weight)
+	{
+		if (weight <= 0) return count;
+		sources[count] = source;
+		targets[count] = target;
+		weights[count] = weight;
+		return count + 1;
+	}
+
+	// Each competitor's share of the stationary distribution. The shares sum to 1.
+	public Map<Competitor, Double> getRatings()
+	{
+		return new HashMap<>(ratings);
+	}
+
+	// Iterations taken by the last call to compute().
+	public int iterations()
+	{
+		return iterations;
+	}
+
+	public void setDamping(double damping)
+	{
+		if (!(damping >= 0 && damping < 1))
+			throw new IllegalArgumentException("Damping must be at least 0 and less than 1.");
+		this.damping = damping;
+	}
+
+	public double getDamping()
+	{
+		return damping;
+	}
+
+	// Sets the total change in the distribution between iterations below which iteration stops.
+	public void setThreshold(double threshold)
+	{
+		if (!(threshold > 0))
+			throw new IllegalArgumentException("Threshold must be positive.");
+		this.threshold = threshold;
+	}
+
+	public double getThreshold()
+	{
+		return threshold;
+	}
+}
@@ -0,0 +1,50 @@
+package metrics;
+
+import parse.AbstractGame;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Massey ratings: the least-squares fit of rating differences to margins of victory. Each
+ * competitor's right-hand side is its total point differential. The Massey matrix's rows sum to
+ * zero, so the all-ones term fixes the ratings to sum to zero, making a rating the number of
+ * points by which a competitor beats an average one.
+ */
+public class MasseyRating<Game extends AbstractGame<?>> extends LinearRating<Game> {
+
+	MasseyRating(GameList<Game> gameList)
+	{
+		super(gameList);
+	}
+
+	@Override
+	protected double diagonalShift()
+	{
+		return 0;
+	}
+
+	@Override
+	protected double onesWeight()
+	{
+		return 1;
+	}
+
+	@Override
+	protected double baseValue()
+	{
+		return 0;
+	}
+
+	@Override
+	protected double gameValue(double score1, double score2)
+	{
+		return score1 - score2;
+	}
+
+	@Override
+	protected double startingValue()
+	{
+		return 0;
+	}
+}
@@ -3,6 +3,7 @@ package metrics;
 import nodes.Competitor;
 import nodes.Division;
 import nodes.Graph;
+import nodes.GraphIndex;
 import nodes.Node;
 import nodes.Team;
 import parse.AbstractGame;
@@ -15,7 +16,6 @@ import parse.OWLGame;
 import parse.OWLReader;
 
 import java.io.File;
-import java.io.IOException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -48,9 +48,14 @@ import java.util.regex.Pattern;
 public class MetricsScript implements Runnable {
 	
 	// Types of information that can be requested
-	private enum InfoType { ELO, RECORDS, GAMES, OPPONENT_RECORDS; }
+	private enum InfoType { ELO, GLICKO, RECORDS, GAMES, OPPONENT_RECORDS; }
 	private enum LeagueType { CFL, NBA, OWL; }
 	
+	// Games between the rating checkpoints from which point-in-time Elo ratings are rebuilt
+	private static final int ELO_CHECKPOINT_INTERVAL = 32;
+	// Number of processed rating timelines kept for repeated queries
+	private static final int RATING_CACHE_SIZE = 16;
+	
 	private boolean isRunning;
 	
 	// Main search state variables
@@ -60,14 +65,20 @@ public class MetricsScript implements Runnable {
 	
 	// Readers
 	private Scanner scan;
-	private CFLReader cflReader;
-	private NBAReader nbaReader;
-	private OWLReader owlReader;
+	// Each league's reader, and its games indexed in date order, loaded when the league is chosen
+	private LeagueSource<CFLReader, CFLGame> cflSource;
+	private LeagueSource<NBAReader, NBAGame> nbaSource;
+	private LeagueSource<OWLReader, OWLGame> owlSource;
+	// The current game list, in its own order, indexed for the end point of a ratings query
+	private TemporalIndex<?> gameListIndex = null;
+	
+	// Processed Elo ratings, by league, Elo settings, initial rating, and game list
+	private RatingCache ratingCache = new RatingCache(RATING_CACHE_SIZE);
 	
 	// Commands
 	private Map<String, LeagueType> leagueCommands;
 	private Map<String, InfoType> infoCommands;
-	private Set<String> gameParams, recordParams, ratingParams, recordSortTypes;
+	private Set<String> gameParams, recordParams, ratingParams, glickoParams, recordSortTypes;
 	
 	public void run()
 	{
@@ -77,26 +88,14 @@ public class MetricsScript implements Runnable {
 	// Entry point
 	private void init()
 	{
-		// Load data
+		// Set up data sources. Nothing is read until a league is chosen.
 		scan = new Scanner(System.in);
-		File teamDataSource;
-		File gameDataSource;
-		
-		try {
-			teamDataSource = new File("resources/cfl/cfl-graph.dat");
-			gameDataSource = new File("resources/cfl/cfl-clean.dat");
-			cflReader = new CFLReader(teamDataSource, gameDataSource);
-			teamDataSource = new File("resources/nba/nba-graph.dat");
-			gameDataSource = new File("resources/nba/nba-clean.dat");
-			nbaReader = new NBAReader(teamDataSource, gameDataSource); 
-			teamDataSource = new File("resources/owl/owl-graph.dat");
-			gameDataSource = new File("resources/owl/owl-clean.dat");
-			owlReader = new OWLReader(teamDataSource, gameDataSource);
-		} catch (ClassNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		cflSource = new LeagueSource<>("CFL", () -> new CFLReader(new File("resources/cfl/cfl-graph.dat"),
+				new File("resources/cfl/cfl-clean.dat")), GameIndex::cfl);
+		nbaSource = new LeagueSource<>("NBA", () -> new NBAReader(new File("resources/nba/nba-graph.dat"),
+				new File("resources/nba/nba-clean.dat")), GameIndex::nba);
+		owlSource = new LeagueSource<>("OWL", () -> new OWLReader(new File("resources/owl/owl-graph.dat"),
+				new File("resources/owl/owl-clean.dat")), GameIndex::owl);
 		
 		// Set up commands
 		leagueCommands = new HashMap<>();
@@ -106,6 +105,7 @@ public class MetricsScript implements Runnable {
 		infoCommands = new HashMap<>();
 		infoCommands.put("ELO", InfoType.ELO);
 		infoCommands.put("RATINGS", InfoType.ELO);
+		infoCommands.put("GLICKO", InfoType.GLICKO);
 		infoCommands.put("GAMES", InfoType.GAMES);
 		infoCommands.put("MATCHES", InfoType.GAMES);
 		infoCommands.put("RECORDS", InfoType.RECORDS);
@@ -121,6 +121,7 @@ public class MetricsScript implements Runnable {
 		recordParams = new HashSet<>(Arrays.asList(new String[] {"type", "sort"}));
 		ratingParams = new HashSet<>(Arrays.asList(new String[] 
 				{"stage", "week", "date", "game", "sort", "initial"}));
+		glickoParams = new HashSet<>(Arrays.asList(new String[] {"sort", "initial"}));
 		recordSortTypes = new HashSet<>(Arrays.asList(new String[] 
 				{"record", "team", "division", "conference"}));
 		
@@ -147,6 +148,7 @@ public class MetricsScript implements Runnable {
 		{
 			// Returns a list of games to be used in a subsequent query.
 			gameList = handleGameInput(seekGameInput());
+			gameListIndex = gameList == null ? null : temporalIndex(gameList);
 		} 
 		else if (infoType == null)
 		{
@@ -167,6 +169,14 @@ public class MetricsScript implements Runnable {
 					if (handleEloInput(input) == null) { return; }
 					break;
 				}
+				// Prints Glicko-2 ratings after the game list.
+				case GLICKO:
+				{
+					input = seekGlickoInput();
+					if (input == null) { return; }
+					if (handleGlickoInput(input) == null) { return; }
+					break;
+				}
 				// No input needed for 'games'. Simply, print the list.
 				case GAMES:
 				{
@@ -183,19 +193,19 @@ public class MetricsScript implements Runnable {
 						case CFL:
 						{
 							recordsFound = 
-									handleRecordInput(input, (GameList<CFLGame>) gameList, cflReader);
+									handleRecordInput(input, (GameList<CFLGame>) gameList, cflSource.reader());
 							break;
 						}
 						case NBA:
 						{
 							recordsFound = 
-									handleRecordInput(input, (GameList<NBAGame>) gameList, nbaReader);
+									handleRecordInput(input, (GameList<NBAGame>) gameList, nbaSource.reader());
 							break;
 						}
 						case OWL:
 						{
 							recordsFound = 
-									handleRecordInput(input, (GameList<OWLGame>) gameList, owlReader);
+									handleRecordInput(input, (GameList<OWLGame>) gameList, owlSource.reader());
 							break;
 						}
 					}
@@ -278,7 +288,16 @@ public class MetricsScript implements Runnable {
 			System.out.println("Type \"help\" for more information.");
 		}
 		else
+		{
 			System.out.println(league);
+			// Start reading the league's data while the user composes a game search.
+			switch (league)
+			{
+				case CFL: cflSource.preload(); break;
+				case NBA: nbaSource.preload(); break;
+				case OWL: owlSource.preload(); break;
+			}
+		}
 	}
 	
 	private String seekGameInput()
@@ -636,11 +655,7 @@ public class MetricsScript implements Runnable {
 				}
 				else 
 				{
-					while (endGameIndex < gameList.size() &&
-							gameList.get(endGameIndex).getDate().compareTo(endDate) <= 0)
-					{
-						++endGameIndex;
-					}
+					endGameIndex = gameListIndex.endOfDate(endDate);
 					System.out.printf("Searching all games up to and including %s\n", df.format(endDate));
 				}
 			} 
@@ -685,14 +700,7 @@ public class MetricsScript implements Runnable {
 					{
 						endGameIndex = gameList.size();
 					}
-					else {
-						while (endGameIndex < gameList.size())
-						{
-							game = (CFLGame)gameList.get(endGameIndex);
-							if (game.getWeekNumber() > endWeekNumber) { break; }
-							else { endGameIndex++; }
-						}
-					}
+					else { endGameIndex = gameListIndex.endOfPeriod(endWeekNumber); }
 					break;
 				}
 				case OWL:
@@ -742,10 +750,6 @@ public class MetricsScript implements Runnable {
 							return null;
 						}
 					}
-					/*
-					 *  TODO: Generalize these search functions with a method that takes a predicate.
-					 *  One for each game type
-					 */
 					OWLGame game = (OWLGame)gameList.get(gameList.size() - 1);
 					// Attempt to preempt search
 					if (game.getStageNumber() < stageNumber)
@@ -758,14 +762,8 @@ public class MetricsScript implements Runnable {
 					}
 					else 
 					{
-						while (endGameIndex < gameList.size())
-						{
-							game = (OWLGame)gameList.get(endGameIndex);
-							if (game.getStageNumber() > stageNumber) break;
-							else if (game.getStageNumber() == stageNumber && 
-									game.getWeekNumber() > weekNumber) break;
-							else { endGameIndex++; }
-						}
+						endGameIndex = gameListIndex.endOfPeriod(
+								TemporalIndex.stageAndWeek(stageNumber, weekNumber));
 					}
 					break;
 				}
@@ -798,15 +796,7 @@ public class MetricsScript implements Runnable {
 				{
 					endGameIndex = gameList.size();
 				}
-				else 
-				{
-					while (endGameIndex < gameList.size())
-					{
-						game = (OWLGame)gameList.get(endGameIndex);
-						if (game.getStageNumber() > endStageNumber) { break; }
-						else { endGameIndex++; }
-					}
-				}			
+				else { endGameIndex = gameListIndex.endOfStage(endStageNumber); }			
 		}
 		else { endGameIndex = gameList.size(); }
 		
@@ -836,27 +826,24 @@ public class MetricsScript implements Runnable {
 			case CFL:
 			{
 				@SuppressWarnings("unchecked")
-				PowerRating<CFLGame> eloReader = new PowerRating<CFLGame>(null, (double)initial, 
-						new CFLEloFunction(), (GameList<CFLGame>) gameList, true);
-				eloReader.process();
+				PowerRating<CFLGame> eloReader = processedRatings(new CFLEloFunction(), 
+						(GameList<CFLGame>) gameList, initial);
 				ratings = eloReader.getRatingsBeforeGame(endGameIndex);
 				break;
 			}
 			case NBA:
 			{
 				@SuppressWarnings("unchecked")
-				PowerRating<NBAGame> eloReader = new PowerRating<NBAGame>(null, (double)initial, 
-						new NBAEloFunction(), (GameList<NBAGame>) gameList, true);
-				eloReader.process();
+				PowerRating<NBAGame> eloReader = processedRatings(new NBAEloFunction(), 
+						(GameList<NBAGame>) gameList, initial);
 				ratings = eloReader.getRatingsBeforeGame(endGameIndex);
 				break;
 			}
 			case OWL:
 			{
 				@SuppressWarnings("unchecked")
-				PowerRating<OWLGame> eloReader = new PowerRating<OWLGame>(null, (double)initial, 
-						new OWLEloFunction(), (GameList<OWLGame>) gameList, true);
-				eloReader.process();
+				PowerRating<OWLGame> eloReader = processedRatings(new OWLEloFunction(), 
+						(GameList<OWLGame>) gameList, initial);
 				ratings = eloReader.getRatingsBeforeGame(endGameIndex);
 				break;
 			}
@@ -878,10 +865,89 @@ public class MetricsScript implements Runnable {
 				compareStr = null;
 			}
 		}
-		printRecords(ratings, compareStr, getCurrentReader().competitorGraph(), true);
+		printRecords(ratings, compareStr, getCurrentReader().graphIndex(), null, true);
+		return ratings;
+	}
+	
+	private String seekGlickoInput()
+	{
+		return seekInput("Please provide any sort settings or an initial rating for the Glicko-2 ratings." + 
+				" Or, for the default settings, simply press Enter without specifying any commands.");
+	}
+	
+	/* Returns a map of competitors to their Glicko-2 ratings after all the games in the game list.
+	 * Games are rated in periods: by day in the NBA, by week in the CFL, and by stage and week
+	 * in the OWL.
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<Competitor, Double> handleGlickoInput(String input)
+	{
+		String[] paramList = handleInput(input);
+		if (paramList == null) return null;
+		Map<String, String> paramMap = getParameters(paramList);
+		flagInvalidParameters(paramMap.keySet(), glickoParams);
+		
+		// Glicko ratings are conventionally centred on 1500.
+		int initial = 1500;
+		if (paramMap.containsKey("initial"))
+		{
+			try 
+			{
+				initial = Integer.parseInt(paramMap.get("initial"));
+			} 
+			catch (NumberFormatException ex)
+			{
+				System.out.println("No integer detected for initial value. Please use an integer.\n");
+				return null;
+			}
+		}
+		
+		Glicko2<?> glicko = null;
+		switch (league)
+		{
+			case CFL:
+				glicko = Glicko2.cfl((GameList<CFLGame>) gameList, initial);
+				break;
+			case NBA:
+				glicko = Glicko2.nba((GameList<NBAGame>) gameList, initial);
+				break;
+			case OWL:
+				glicko = Glicko2.owl((GameList<OWLGame>) gameList, initial);
+				break;
+		}
+		glicko.process();
+		Map<Competitor, Double> ratings = glicko.getRatings();
+		System.out.printf("Rated %d games in %d rating periods\n---\n", gameList.size(), glicko.numPeriods());
+		
+		String compareStr = paramMap.get("sort");
+		if (compareStr != null)
+		{
+			Set<String> nonceSet = new HashSet<>();
+			nonceSet.add(compareStr);
+			if (flagInvalidParameters(nonceSet, recordSortTypes))
+			{
+				compareStr = null;
+			}
+		}
+		printRecords(ratings, compareStr, getCurrentReader().graphIndex(), null, true);
 		return ratings;
 	}
 	
+	/* Returns a processed rating timeline for the game list, from the cache if the same query has
+	 * been made before. */
+	private <Game extends AbstractGame<?>> PowerRating<Game> processedRatings(EloFunction<Game> eloFunction,
+			GameList<Game> gameList, int initial)
+	{
+		return ratingCache.get(league, eloFunction, initial, gameList, () -> 
+		{
+			PowerRating<Game> eloReader = new PowerRating<Game>(null, (double)initial, 
+					eloFunction, gameList, false);
+			eloReader.setCheckpointInterval(ELO_CHECKPOINT_INTERVAL);
+			eloReader.process();
+			return eloReader;
+		});
+	}
+	
 	private String seekRecordInput()
 	{
 		return seekInput("Please specify any settings for reported records." + 
@@ -906,6 +972,7 @@ public class MetricsScript implements Runnable {
 		TeamRecords<Game, C> recordsReader = new TeamRecords<>(teamMap, gameList);
 		recordsReader.readGames();
 		Map<C, Record> recordsMap = null;
+		Standings<Game> standings = null;	// Orders overall records, breaking ties
 		
 		if (paramMap.isEmpty())
 		{
@@ -929,6 +996,7 @@ public class MetricsScript implements Runnable {
 		{
 			System.out.println("Team records");
 			recordsMap = recordsReader.teamRecords();
+			standings = new Standings<>(teamDataReader.graphIndex(), gameList);
 		}
 		else if (typeStr.equals("home"))
 		{
@@ -975,7 +1043,7 @@ public class MetricsScript implements Runnable {
 				compareStr = null;
 			}
 		}
-		printRecords(recordsMap, compareStr, teamDataReader.competitorGraph(), false);
+		printRecords(recordsMap, compareStr, teamDataReader.graphIndex(), standings, false);
 		return true;
 	}
 	
@@ -1002,9 +1070,11 @@ public class MetricsScript implements Runnable {
 		return handleGameInput(input);
 	}
 	
-	// Prints records/ratings according to sort criteria.
-	private <C extends Competitor, V extends Comparable<V>> boolean
-		printRecords(Map<C, V> recordsMap, String compareStr, Graph<?> teamGraph, boolean isDouble)
+	/* Prints records/ratings according to sort criteria. Given standings, sorting by value follows
+	 * the standings, with their tiebreakers, instead. */
+	private <C extends Competitor, V extends Comparable<V>, K extends Comparable<K>> boolean
+		printRecords(Map<C, V> recordsMap, String compareStr, GraphIndex<K> teamGraph, Standings<?> standings,
+				boolean isDouble)
 	{
 		// By default, sort all competitors by record, in descending order.
 		if (compareStr == null || compareStr.equals("record"))
@@ -1014,7 +1084,7 @@ public class MetricsScript implements Runnable {
 			{
 				list.add(new CompetitorComparablePair<>(entry.getKey(), entry.getValue()));	
 			}
-			sortRecordsList(list, true);
+			sortRecordsList(list, standings);
 			printRecordsAux(list, isDouble);
 		}
 		// Sorts competitors alphabetically.
@@ -1053,7 +1123,7 @@ public class MetricsScript implements Runnable {
 							list.add(new CompetitorComparablePair<>(t, recordsMap.get(t)));
 						}
 						
-						sortRecordsList(list, true);
+						sortRecordsList(list, standings);
 						System.out.println(division);
 						for (CompetitorComparablePair<Team, V> pair: list)
 						{
@@ -1087,7 +1157,7 @@ public class MetricsScript implements Runnable {
 								Team t = (Team)n;
 								list.add(new CompetitorComparablePair<>(t, recordsMap.get(t)));
 							}
-							sortRecordsList(list, true);
+							sortRecordsList(list, standings);
 							System.out.printf("%2s%s\n", "", division);
 							for (CompetitorComparablePair<Team, V> pair: list)
 							{
@@ -1106,7 +1176,7 @@ public class MetricsScript implements Runnable {
 			{
 				case NBA:
 				{
-					ArrayList<Node<?>> conferenceList = new ArrayList<>(teamGraph.getNodesAtLevel(1));
+					ArrayList<Node<K>> conferenceList = new ArrayList<>(teamGraph.getNodesAtLevel(1));
 					conferenceList.sort(Comparator.comparing(Node::getKey));
 					
 					Team t;
@@ -1114,12 +1184,12 @@ public class MetricsScript implements Runnable {
 					{
 						ArrayList<CompetitorComparablePair<Team, V>> list = new ArrayList<>();
 						Division conference = (Division)conferenceList.get(conf);
-						for (Node<String> teamLeaf: conference.getLeaves())
+						for (Node<K> teamLeaf: teamGraph.getLeaves(conferenceList.get(conf)))
 						{
 							t = (Team)teamLeaf;
 							list.add(new CompetitorComparablePair<>(t, recordsMap.get(t)));
 						}
-						sortRecordsList(list, true);
+						sortRecordsList(list, standings);
 						
 						System.out.println(conference.getFullName());
 						for (CompetitorComparablePair<Team, V> pair: list)
@@ -1159,6 +1229,28 @@ public class MetricsScript implements Runnable {
 		recordsList.sort(cmp);
 	}
 
+	// Sorts lists by standing, or by the associated numerical value if there are no standings.
+	private <C extends Competitor, V extends Comparable<V>> void sortRecordsList
+		(List<CompetitorComparablePair<C, V>> recordsList, Standings<?> standings)
+	{
+		if (standings == null)
+		{
+			sortRecordsList(recordsList, true);
+			return;
+		}
+		List<C> competitors = new ArrayList<>();
+		for (CompetitorComparablePair<C, V> pair: recordsList)
+		{
+			competitors.add(pair.competitor());
+		}
+		Map<C, Integer> places = new HashMap<>();
+		for (C competitor: standings.rank(competitors))
+		{
+			places.put(competitor, places.size());
+		}
+		recordsList.sort(Comparator.comparing(pair -> places.get(pair.competitor())));
+	}
+
 	private <C extends Competitor, V extends Comparable<V>> void printRecordsAux
 		(List<CompetitorComparablePair<C, V>> recordsList, boolean isDouble)
 	{	// String format depends on whether this prints a floating-point number or a String.
@@ -1303,6 +1395,7 @@ public class MetricsScript implements Runnable {
 			System.out.println("Choose an abbreviation from the list below:");
 			System.out.println("\t - elo (Elo ratings, or power ratings)");
 			System.out.println("\t - ratings (Same as \'elo\'");
+			System.out.println("\t - glicko (Glicko-2 ratings, updated by day, week, or stage and week)");
 			System.out.println("\t - records (Team records: overall, home, road/away, "
 					+ "and opponent records)");
 			System.out.println("\t - games (A list of the previously specified games/matches)");
@@ -1356,6 +1449,10 @@ public class MetricsScript implements Runnable {
 							break;
 					}
 					break;
+				case GLICKO:
+					descriptionMap.put("initial", 
+						"Determines an initial rating for Glicko-2 ratings. 1500 by default.");
+					break;
 				case RECORDS:
 					descriptionMap.put("type=<team/home/away/road/opponent>", 
 							"Determines the type of records returned.");
@@ -1378,16 +1475,29 @@ public class MetricsScript implements Runnable {
 		System.out.println("---");
 	}
 	
+	// Indexes a game list of the current league in its own order.
+	@SuppressWarnings("unchecked")
+	private TemporalIndex<?> temporalIndex(GameList<?> gameList)
+	{
+		switch (league)
+		{
+			case CFL: return TemporalIndex.cfl((GameList<CFLGame>) gameList);
+			case NBA: return TemporalIndex.nba((GameList<NBAGame>) gameList);
+			case OWL: return TemporalIndex.owl((GameList<OWLGame>) gameList);
+			default: return null;
+		}
+	}
+	
 	private GameReader<?, ?, ?> getCurrentReader()
 	{
 		switch (league)
 		{
 			case CFL:
-				return (CFLReader) cflReader;
+				return cflSource.reader();
 			case NBA:
-				return (NBAReader) nbaReader;
+				return nbaSource.reader();
 			case OWL:
-				return (OWLReader) owlReader;
+				return owlSource.reader();
 		}
 		return null;
 	}
@@ -1454,190 +1564,99 @@ public class MetricsScript implements Runnable {
 		return new int[] {startStage, startWeek};
 	}
 	
-	// Filters the list of known NBA games and produces a new list.
+	// Searches the known NBA games for a new list.
 	private GameList<NBAGame> nbaGameList(Date startDate, Date endDate, boolean includePlayoffs, 
 			boolean includeRegularSeason, boolean includeComplete, boolean includeIncomplete,
 			String[] team1Strs, String[] team2Strs, String[] generalTeamStrs)
 	{
-		GameList<NBAGame> list = new GameList<>(nbaReader.gameList());
-		if (startDate != null)
-		{
-			list.removeIf(game -> game.getDate().compareTo(startDate) < 0);
-		}
-		if (endDate != null)
-		{
-			list.removeIf(game -> game.getDate().compareTo(endDate) > 0);
-		}
-		if (!includePlayoffs)
-		{
-			list.removeIf(game -> game.isPlayoffs());
-		}
-		if (!includeRegularSeason)
-		{
-			list.removeIf(game -> !game.isPlayoffs());
-		}
-		if (!includeComplete)
-		{
-			list.removeIf(game -> game.isComplete());
-		}
-		if (!includeIncomplete)
-		{
-			list.removeIf(game -> !game.isComplete());
-		}
-		Graph<String> teamGraph = nbaReader.teamGraph();
-		narrowListByCompetitors(teamGraph, generalTeamStrs, list, true, true);
-		narrowListByCompetitors(teamGraph, team1Strs, list, true, false);
-		narrowListByCompetitors(teamGraph, team2Strs, list, false, true);
-		
-		list.sort(Comparator.naturalOrder());
-		return list;
-		
+		GameIndex<NBAGame>.Query query = nbaSource.index().query()
+				.dates(startDate, endDate)
+				.seasonTypes(includePlayoffs, includeRegularSeason)
+				.completion(includeComplete, includeIncomplete);
+		GraphIndex<String> teamGraph = nbaSource.reader().graphIndex();
+		narrowQueryByCompetitors(teamGraph, generalTeamStrs, query, true, true);
+		narrowQueryByCompetitors(teamGraph, team1Strs, query, true, false);
+		narrowQueryByCompetitors(teamGraph, team2Strs, query, false, true);
+		return query.run();
 	}
 	
-	// Filters the list of known OWL games and produces a new list.
+	// Searches the known OWL games for a new list.
 	private GameList<OWLGame> owlGameList(Date startDate, Date endDate, int startStage, int startWeek,
 			int endStage, int endWeek, boolean includePlayoffs, boolean includeRegularSeason,
 			boolean includeComplete, boolean includeIncomplete,	String[] team1Strs, String[] team2Strs, 
 			String[] generalTeamStrs)
 	{
-		GameList<OWLGame> list = new GameList<>(owlReader.gameList());
-		
-		if (startDate != null)
-		{
-			list.removeIf(game -> game.getDate().compareTo(startDate) < 0);
-		}
-		if (endDate != null)
-		{
-			list.removeIf(game -> game.getDate().compareTo(endDate) > 0);
-		}
-		if (startStage >= 0)
-		{
-			list.removeIf(game -> game.getStageNumber() < startStage);
-		}
-		if (endStage >= 0)
+		GameIndex<OWLGame>.Query query = owlSource.index().query()
+				.dates(startDate, endDate)
+				.seasonTypes(includePlayoffs, includeRegularSeason)
+				.completion(includeComplete, includeIncomplete);
+		if (startStage >= 0 || endStage >= 0)
 		{
-			list.removeIf(game -> game.getStageNumber() > endStage);
+			query.periods(startStage < 0 ? Long.MIN_VALUE : TemporalIndex.stageAndWeek(startStage, Integer.MIN_VALUE),
+					endStage < 0 ? Long.MAX_VALUE : TemporalIndex.stageAndWeek(endStage, Integer.MAX_VALUE));
 		}
+		// Week bounds apply to the week number alone, in any stage.
 		if (startWeek >= 0)
 		{
-			list.removeIf(game -> game.getWeekNumber() < startWeek);
+			query.where(game -> game.getWeekNumber() >= startWeek);
 		}
 		if (endWeek >= 0)
 		{
-			list.removeIf(game -> game.getWeekNumber() > endWeek);
-		}
-		if (!includePlayoffs)
-		{
-			list.removeIf(game -> game.isPlayoffGame());
-		}
-		if (!includeRegularSeason)
-		{
-			list.removeIf(game -> !game.isPlayoffGame());
-		}
-		if (!includeComplete)
-		{
-			list.removeIf(game -> game.isComplete());
-		}
-		if (!includeIncomplete)
-		{
-			list.removeIf(game -> !game.isComplete());
-		}
-		Graph<String> teamGraph = owlReader.teamGraph();
-		narrowListByCompetitors(teamGraph, generalTeamStrs, list, true, true);
-		narrowListByCompetitors(teamGraph, team1Strs, list, true, false);
-		narrowListByCompetitors(teamGraph, team2Strs, list, false, true);
-		
-		list.sort(Comparator.naturalOrder());
-		return list;
+			query.where(game -> game.getWeekNumber() <= endWeek);
 		}
+		GraphIndex<String> teamGraph = owlSource.reader().graphIndex();
+		narrowQueryByCompetitors(teamGraph, generalTeamStrs, query, true, true);
+		narrowQueryByCompetitors(teamGraph, team1Strs, query, true, false);
+		narrowQueryByCompetitors(teamGraph, team2Strs, query, false, true);
+		return query.run();
+	}
 	
-	// Filters the list of known CFL games and produces a new list.
+	// Searches the known CFL games for a new list.
 	private GameList<CFLGame> cflGameList(Date startDate, Date endDate, int startWeek, int endWeek, 
 			boolean includePlayoffs, boolean includeRegularSeason, boolean includeComplete, 
 			boolean includeIncomplete, String[] team1Strs, String[] team2Strs, String[] generalTeamStrs)
 	{
-		GameList<CFLGame> list = new GameList<>(cflReader.gameList());
-		if (startDate != null)
-		{
-			list.removeIf(game -> game.getDate().compareTo(startDate) < 0);
-		}
-		if (endDate != null)
-		{
-			list.removeIf(game -> game.getDate().compareTo(endDate) > 0);
-		}
-		if (startWeek >= 0)
-		{
-			list.removeIf(game -> game.getWeekNumber() < startWeek);
-		}
-		if (endWeek >= 0)
-		{
-			list.removeIf(game -> game.getWeekNumber() > endWeek);
-		}
-		if (!includePlayoffs)
-		{
-			list.removeIf(game -> game.isPlayoffs());
-		}
-		if (!includeRegularSeason)
-		{
-			list.removeIf(game -> game.isRegularSeason());
-		}
-		if (!includeComplete)
-		{
-			list.removeIf(game -> game.isComplete());
-		}
-		if (!includeIncomplete)
-		{
-			list.removeIf(game -> !game.isComplete());
-		}
-		
-		Graph<String> teamGraph = cflReader.teamGraph();
-		narrowListByCompetitors(teamGraph, generalTeamStrs, list, true, true);
-		narrowListByCompetitors(teamGraph, team1Strs, list, true, false);
-		narrowListByCompetitors(teamGraph, team2Strs, list, false, true);
-		
-		list.sort(Comparator.naturalOrder());
-		return list;
+		GameIndex<CFLGame>.Query query = cflSource.index().query()
+				.dates(startDate, endDate)
+				.seasonTypes(includePlayoffs, includeRegularSeason)
+				.completion(includeComplete, includeIncomplete);
+		if (startWeek >= 0 || endWeek >= 0)
+		{
+			query.periods(startWeek < 0 ? Long.MIN_VALUE : startWeek, endWeek < 0 ? Long.MAX_VALUE : endWeek);
+		}
+		GraphIndex<String> teamGraph = cflSource.reader().graphIndex();
+		narrowQueryByCompetitors(teamGraph, generalTeamStrs, query, true, true);
+		narrowQueryByCompetitors(teamGraph, team1Strs, query, true, false);
+		narrowQueryByCompetitors(teamGraph, team2Strs, query, false, true);
+		return query.run();
 	}
 	
-	/* Filters the list of games according to whether:
+	/* Narrows the search to games in which:
 	 * 		a) the away team has its key (or an ancestor's key) in the list of nodeKeys;
 	 *  	b) the home team has its key (etc.) in the list of nodeKeys; or
 	 *  	c) either team has its key (etc.) in the list of nodeKeys.
-	 * The competitorGraph contains the keys for search.
+	 * The competitorGraph contains the keys for search. Keys matching no team narrow nothing.
 	 */
-	private<T extends Comparable<T>> void narrowListByCompetitors(Graph<T> competitorGraph,
-			T[] nodeKeys, GameList<?> list, boolean checksAwayTeam, boolean checksHomeTeam)
+	private<T extends Comparable<T>> void narrowQueryByCompetitors(GraphIndex<T> competitorGraph,
+			T[] nodeKeys, GameIndex<?>.Query query, boolean checksAwayTeam, boolean checksHomeTeam)
 	{
 		if (!(checksAwayTeam || checksHomeTeam)) return;
 		
-		
 		Set<Team> competitors = new HashSet<>();
 		if (nodeKeys != null)
 		{
 			competitors.addAll(getTeams(competitorGraph, nodeKeys));
 		}
 		
-		// TODO: Make this control statement more efficient, perhaps with a pair of initial predicates
 		if (!competitors.isEmpty())
 		{
-			if (checksAwayTeam && checksHomeTeam)
-				list.removeIf(game -> !(competitors.contains(game.getCompetitor1()) ||
-					competitors.contains(game.getCompetitor2())));
-			else if (checksAwayTeam)
-			{
-				list.removeIf(game -> !competitors.contains(game.getCompetitor1()));
-			}
-			else if (checksHomeTeam)
-			{
-				list.removeIf(game -> !competitors.contains(game.getCompetitor2()));
-			}
+			query.competitors(competitors, checksAwayTeam, checksHomeTeam);
 		}
-			
 	}
 	
 	/* Searches competitorGraph for each key in nodeKeys and returns all teams which have that key
 	 * and all teams which are successors to nodes with that key. */
-	private<T extends Comparable<T>> Set<Team> getTeams(Graph<T> competitorGraph, 
+	private<T extends Comparable<T>> Set<Team> getTeams(GraphIndex<T> competitorGraph, 
 			T[] nodeKeys)
 	{
 		Set<Team> teams = new HashSet<>();
@@ -1650,8 +1669,7 @@ public class MetricsScript implements Runnable {
 				continue;
 			}
 			
-			List<Node<T>> leaves = node.getLeaves();
-			for (Node<T> leaf: leaves)
+			for (Node<T> leaf: competitorGraph.getLeaves(node))
 			{
 				teams.add((Team)leaf);
 			}
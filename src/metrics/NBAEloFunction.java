@@ -18,6 +18,14 @@ public class NBAEloFunction extends EloFunction<NBAGame> implements java.io.Seri
 	
 	private static final long serialVersionUID = -4965557664623704441L;
 	
+	// Numerators of the margin of victory multiplier, precomputed for common margins
+	private static final double[] MOV_NUMERATORS = new double[128];
+	static
+	{
+		for (int margin = 0; margin < MOV_NUMERATORS.length; margin++)
+			MOV_NUMERATORS[margin] = Math.pow(margin + 3, .8);
+	}
+	
 	// Default K-factor = 20. Expected home win rate = 60%.
 	public NBAEloFunction()
 	{
@@ -30,28 +38,18 @@ public class NBAEloFunction extends EloFunction<NBAGame> implements java.io.Seri
 	}
 
 	@Override
-	public RatingPair apply(RatingPair pair, NBAGame game) {
-		
-		double homeAdvantageElo = getHomeAdvantageElo();
+	public double ratingDelta(double rating1, double rating2, NBAGame game) {
 		
 		if (!game.isComplete())
 		{
-			return pair;
+			return 0;
 		}
 		
 		/* eloDifference is negative when competitor 1 is favored
 		 * and positive when competitor 2 is favored.
 		 */
-		double eloDifference = pair.rating2 - pair.rating1;
-		if (!game.isNeutralSite())
-		{
-			// Advantage home advantage
-			if (game.homeCompetitor() == game.getCompetitor1())
-				eloDifference -= homeAdvantageElo;
-			else if (game.homeCompetitor() == game.getCompetitor2());
-				eloDifference += homeAdvantageElo;
-		}
-		double expectedScore1 = 1.0 / (1.0 + Math.pow(10, eloDifference / 400));
+		double eloDifference = eloDifference(rating1, rating2, game);
+		double expectedScore1 = expectedScore(eloDifference);
 		// expectedScore2 would be 1 - expectedScore1
 		
 		double actualScore1;
@@ -77,9 +75,41 @@ public class NBAEloFunction extends EloFunction<NBAGame> implements java.io.Seri
 		movMultiplier = Math.max(0, movMultiplier); // Ensures multiplier never turns negative
 		
 		double delta = (1 + movMultiplier) * K * (actualScore1 - expectedScore1);
-		double newRating1 = pair.rating1 + delta;
-		double newRating2 = pair.rating2 - delta;
-		RatingPair newPair = new RatingPair(newRating1, newRating2); 
-		return newPair;
+		return delta;
+	}
+	
+	private static double movNumerator(int marginOfVictory)
+	{
+		return marginOfVictory < MOV_NUMERATORS.length ? MOV_NUMERATORS[marginOfVictory] 
+				: Math.pow(marginOfVictory + 3, .8);
+	}
+	
+	@Override
+	public void update(double[] ratings, GameBatch batch, int from, int to)
+	{
+		double homeAdvantageElo = getHomeAdvantageElo();
+		for (int i = from; i < to; i++)
+		{
+			int flags = batch.flags[i];
+			if ((flags & GameBatch.COMPLETE) == 0) { continue; }
+			
+			int index1 = batch.competitor1s[i], index2 = batch.competitor2s[i];
+			int score1 = batch.scores1[i], score2 = batch.scores2[i];
+			double eloDifference = ratings[index2] - ratings[index1];
+			if ((flags & GameBatch.NEUTRAL_SITE) == 0) { eloDifference += homeAdvantageElo; }
+			double expectedScore1 = ExpectedScoreTable.expectedScore(eloDifference);
+			double actualScore1 = score1 > score2 ? 1 : (score1 < score2 ? 0 : 0.5);
+			
+			if (eloDifference < 0 && score2 > score1 || eloDifference > 0 && score1 > score2)
+			{
+				eloDifference *= -1;
+			}
+			int marginOfVictory = Math.abs(score1 - score2);
+			double movMultiplier = movNumerator(marginOfVictory) / (7.5 + .006 * eloDifference);
+			movMultiplier = Math.max(0, movMultiplier);
+			double delta = (1 + movMultiplier) * K * (actualScore1 - expectedScore1);
+			ratings[index1] += delta;
+			ratings[index2] -= delta;
+		}
 	}
 }
@@ -17,6 +17,15 @@ import parse.OWLGame;
 public class OWLEloFunction extends EloFunction<OWLGame> implements java.io.Serializable {
 	
 	private static final long serialVersionUID = 8105012269383962057L;
+	
+	// Margin of victory multipliers, precomputed for every possible margin (scores are bytes)
+	private static final double[] MOV_MULTIPLIERS = new double[128];
+	static
+	{
+		for (int margin = 0; margin < MOV_MULTIPLIERS.length; margin++)
+			MOV_MULTIPLIERS[margin] = margin <= 1 ? 0 :
+				(Math.pow (2, margin - 1) - 1) / Math.pow(2, margin - 3) - 1;
+	}
 
 	/* Default K-factor 20. No home advantage expected, as all games take place in Los Angeles
 	 * and the 'home' team receives no perceivable competitive advantage. */
@@ -31,27 +40,18 @@ public class OWLEloFunction extends EloFunction<OWLGame> implements java.io.Seri
 	}
 
 	@Override
-	public RatingPair apply(RatingPair pair, OWLGame game) {
-		double homeAdvantageElo = getHomeAdvantageElo();
+	public double ratingDelta(double rating1, double rating2, OWLGame game) {
 		
 		if (!game.isComplete())
 		{
-			return pair;
+			return 0;
 		}
 		
 		/* eloDifference is negative when competitor 1 is favored
 		 * and positive when competitor 2 is favored.
 		 */
-		double eloDifference = pair.rating2 - pair.rating1;
-		if (!game.isNeutralSite())
-		{
-			// Advantage home advantage
-			if (game.homeCompetitor() == game.getCompetitor1())
-				eloDifference -= homeAdvantageElo;
-			else if (game.homeCompetitor() == game.getCompetitor2());
-				eloDifference += homeAdvantageElo;
-		}
-		double expectedScore1 = 1.0 / (1.0 + Math.pow(10, eloDifference / 400));
+		double eloDifference = eloDifference(rating1, rating2, game);
+		double expectedScore1 = expectedScore(eloDifference);
 		// expectedScore2 would be 1 - expectedScore1
 		
 		double actualScore1;
@@ -82,9 +82,50 @@ public class OWLEloFunction extends EloFunction<OWLGame> implements java.io.Seri
 		}
 			
 		double delta = (1 + movMultiplier) * actualK * (actualScore1 - expectedScore1);
-		double newRating1 = pair.rating1 + delta;
-		double newRating2 = pair.rating2 - delta;
-		RatingPair newPair = new RatingPair(newRating1, newRating2); 
-		return newPair;
+		return delta;
+	}
+	
+	private static double movMultiplier(int marginOfVictory)
+	{
+		return marginOfVictory < MOV_MULTIPLIERS.length ? MOV_MULTIPLIERS[marginOfVictory] :
+			(Math.pow (2, marginOfVictory - 1) - 1) / Math.pow(2, marginOfVictory - 3) - 1;
+	}
+	
+	@Override
+	protected int flags(OWLGame game)
+	{
+		int flags = super.flags(game);
+		if (game.isPlayoffGame()) { flags |= GameBatch.PLAYOFF; }
+		if (game.isStagePlay()) { flags |= GameBatch.STAGE_PLAY; }
+		return flags;
+	}
+	
+	@Override
+	public void update(double[] ratings, GameBatch batch, int from, int to)
+	{
+		double homeAdvantageElo = getHomeAdvantageElo();
+		for (int i = from; i < to; i++)
+		{
+			int flags = batch.flags[i];
+			if ((flags & GameBatch.COMPLETE) == 0) { continue; }
+			
+			int index1 = batch.competitor1s[i], index2 = batch.competitor2s[i];
+			int score1 = batch.scores1[i], score2 = batch.scores2[i];
+			double eloDifference = ratings[index2] - ratings[index1];
+			if ((flags & GameBatch.NEUTRAL_SITE) == 0) { eloDifference += homeAdvantageElo; }
+			double expectedScore1 = ExpectedScoreTable.expectedScore(eloDifference);
+			double actualScore1 = score1 > score2 ? 1 : (score1 < score2 ? 0 : 0.5);
+			
+			double movMultiplier = movMultiplier(Math.abs(score1 - score2));
+			double actualK = K;
+			if ((flags & GameBatch.PLAYOFF) != 0) 
+			{ 
+				actualK += 5; 
+				if ((flags & GameBatch.STAGE_PLAY) == 0) { actualK += 15; }
+			}
+			double delta = (1 + movMultiplier) * actualK * (actualScore1 - expectedScore1);
+			ratings[index1] += delta;
+			ratings[index2] -= delta;
+		}
 	}
 }
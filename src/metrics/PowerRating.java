@@ -1,8 +1,10 @@
 package metrics;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.*;
 
 import nodes.Competitor;
@@ -18,118 +20,449 @@ public class PowerRating<Game extends AbstractGame<?>> implements java.io.Serial
 	 * 
 	 */
 	private static final long serialVersionUID = -4617428167340107822L;
+	// Fewest games processed by one task when a wave of games is split across threads
+	private static final int MIN_PARALLEL_GAMES = 16;
 
-	private Map<Competitor, Double> m_ratings;
+	private Map<Competitor, Double> initialRatings;
 	private GameList<Game> gameList;
 	private BiFunction<RatingPair, Game, RatingPair> updateFunction;	// Where the math happens
+	private EloFunction<Game> eloFunction;	// updateFunction, if it can update ratings in place
 	private double defaultRating;
 	private boolean trackChanges;	// Allows tracking of ratings on a game-by-game basis.
-	// TreeMap automatically sorts by key, putting game indices in chronological order.
-	private Map<Competitor, TreeMap<Integer, Double>> teamRatingsOverTime = null;
+	private RatingHistory teamRatingsOverTime = null;	// Each team's rating after each of its games
 	private int gameIndex;
 	
+	/* The engine's state. Each competitor gets a dense ordinal when the games are loaded, so 
+	 * that ratings live in a primitive array and each game is a pair of array reads and writes.
+	 */
+	private CompetitorIndex competitorIndex;
+	private int[] competitor1s, competitor2s;	// Ordinals of each game's competitors, by game index
+	private double[] m_ratings;	// Current ratings, by ordinal
+	// The undo log: each game's competitors' ratings before it was applied, by game index
+	private double[] ratings1Before, ratings2Before;
+	private int checkpointInterval = 0;	// Games between checkpoints; 0 disables them.
+	private RatingCheckpoints checkpoints = null;
+	
+	@SuppressWarnings("unchecked")
 	PowerRating(Map<Competitor, Double> initialRatings, double defaultRating,
 			BiFunction<RatingPair, Game, RatingPair> updateFunction, GameList<Game> gameList,
 			boolean trackChanges)
 	{
 	
-		m_ratings = new HashMap<>();
+		this.initialRatings = new HashMap<>();
 		if (initialRatings != null)
-			m_ratings.putAll(initialRatings);
+			this.initialRatings.putAll(initialRatings);
 		this.gameList = gameList;
 		this.updateFunction = updateFunction;
+		if (updateFunction instanceof EloFunction)
+			this.eloFunction = (EloFunction<Game>)updateFunction;
 		this.defaultRating = defaultRating;
-		if (trackChanges)
-		{
-			this.trackChanges = true;
-			teamRatingsOverTime = new HashMap<>();
-		}
+		this.trackChanges = trackChanges;
 	}
 	
 	// Process all the games in gameList.
 	public void process()
 	{	
-		for (gameIndex = 0; gameIndex < gameList.size(); gameIndex++)
-			processGame(gameList.get(gameIndex));
+		loadGames();
+		processNewGames();
 	}
 	
-	// Update ratings on a game-by-game basis.
-	private void processGame(Game game)
+	/* Processes only the games added to the end of gameList since the last call to process() or
+	 * processNewGames(), keeping the current ratings. New games must come after the processed 
+	 * ones chronologically. */
+	public void processNewGames()
+	{
+		if (competitorIndex == null)
+			loadGames();
+		for (; gameIndex < gameList.size(); gameIndex++)
+		{
+			Game game = gameList.get(gameIndex);
+			indexGame(gameIndex, game);
+			if (checkpoints != null && checkpoints.isDue(gameIndex))
+				checkpoints.save(gameIndex, m_ratings, competitorIndex.size());
+			processGame(gameIndex, game);
+		}
+	}
+	
+	/* Processes all the games in gameList, with the same results as process(), applying games which
+	 * share no competitor concurrently on the given pool.
+	 * 
+	 * Each game is scheduled in the wave after the latest wave holding a game of either of its 
+	 * competitors. Games in a wave are therefore independent, and every competitor's games are 
+	 * applied in list order, so each rating goes through exactly the same arithmetic as in 
+	 * process(). Waves are built between checkpoints, which are taken between segments. 
+	 * The update function must be safe to call from several threads at once; Elo functions are.
+	 */
+	public void processInParallel(ForkJoinPool pool)
 	{
-		Competitor comp1, comp2;
-		double comp1Rating, comp2Rating;
-		RatingPair pair, newPair;
+		loadGames();
+		int numGames = gameList.size();
+		for (int i = 0; i < numGames; i++)
+			indexGame(i, gameList.get(i));
 		
-		comp1 = game.getCompetitor1();
-		comp2 = game.getCompetitor2();
-		m_ratings.putIfAbsent(comp1, defaultRating);
-		m_ratings.putIfAbsent(comp2, defaultRating);
-		comp1Rating = m_ratings.get(comp1);
-		comp2Rating = m_ratings.get(comp2);
-				
-		pair = new RatingPair(comp1Rating, comp2Rating);
-		newPair = updateFunction.apply(pair, game);
+		int segmentLength = checkpoints == null ? Math.max(1, numGames) : checkpointInterval;
+		int[] latestWaves = new int[competitorIndex.size()];
+		for (int start = 0; start < numGames; start += segmentLength)
+		{
+			if (checkpoints != null && checkpoints.isDue(start))
+				checkpoints.save(start, m_ratings, competitorIndex.size());
+			processInWaves(start, Math.min(numGames, start + segmentLength), latestWaves, pool);
+		}
+		gameIndex = numGames;
+	}
+	
+	public void processInParallel()
+	{
+		processInParallel(ForkJoinPool.commonPool());
+	}
+	
+	// Schedules games [start, end) into waves of independent games and processes wave by wave.
+	private void processInWaves(int start, int end, int[] latestWaves, ForkJoinPool pool)
+	{
+		Arrays.fill(latestWaves, 0);
+		int[] waves = new int[end - start];
+		int numWaves = 0;
+		for (int i = start; i < end; i++)
+		{
+			int index1 = competitor1s[i], index2 = competitor2s[i];
+			int wave = Math.max(latestWaves[index1], latestWaves[index2]) + 1;
+			latestWaves[index1] = wave;
+			latestWaves[index2] = wave;
+			waves[i - start] = wave;
+			numWaves = Math.max(numWaves, wave);
+		}
 		
-		m_ratings.put(comp1, newPair.rating1);
-		m_ratings.put(comp2, newPair.rating2);
+		// Counting sort of game indices by wave, keeping list order within each wave
+		int[] waveStarts = new int[numWaves + 2];
+		for (int wave: waves)
+			waveStarts[wave + 1]++;
+		for (int wave = 1; wave < waveStarts.length; wave++)
+			waveStarts[wave] += waveStarts[wave - 1];
+		int[] schedule = new int[end - start];
+		int[] positions = Arrays.copyOf(waveStarts, waveStarts.length);
+		for (int i = start; i < end; i++)
+			schedule[positions[waves[i - start]]++] = i;
 		
-		if (this.trackChanges)
-		{	// Add a map of the team's ratings. The key is the game number; value is the rating.
-			TreeMap<Integer, Double> map1 = teamRatingsOverTime.get(comp1);
-			if (map1 == null) 
+		for (int wave = 1; wave <= numWaves; wave++)
+		{
+			int from = waveStarts[wave], to = waveStarts[wave + 1];
+			if (to - from < 2 * MIN_PARALLEL_GAMES)
+				processScheduled(schedule, from, to);
+			else
+				pool.invoke(new WaveTask(schedule, from, to));
+		}
+	}
+	
+	private void processScheduled(int[] schedule, int from, int to)
+	{
+		for (int i = from; i < to; i++)
+			processGame(schedule[i], gameList.get(schedule[i]));
+	}
+	
+	// Processes the scheduled games [from, to) of one wave, splitting the range across the pool.
+	private class WaveTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = -3512271950183957064L;
+		private int[] schedule;
+		private int from, to;
+		
+		WaveTask(int[] schedule, int from, int to)
+		{
+			this.schedule = schedule;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			if (to - from < 2 * MIN_PARALLEL_GAMES)
 			{
-				map1 = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
-				map1.put(-1, pair.rating1);
-				teamRatingsOverTime.put(comp1, map1);
+				processScheduled(schedule, from, to);
+				return;
 			}
-			map1.put(gameIndex, newPair.rating1);
-			
-			
-			TreeMap<Integer, Double> map2 = teamRatingsOverTime.get(comp2);
-			if (map2 == null)
+			int mid = (from + to) >>> 1;
+			invokeAll(new WaveTask(schedule, from, mid), new WaveTask(schedule, mid, to));
+		}
+	}
+	
+	/* Adds a newly completed game to the end of gameList and updates ratings with it alone.
+	 * Games dated before the last processed game are rejected; call process() to rebuild the
+	 * ratings from a corrected list. */
+	public void append(Game game)
+	{
+		if (competitorIndex == null)
+			process();
+		if (gameIndex > 0 && game.getDate().compareTo(gameList.get(gameIndex - 1).getDate()) < 0)
+		{
+			throw new IllegalArgumentException(String.format(
+				"Game \"%s\" is dated before the last processed game, \"%s\".", 
+				game, gameList.get(gameIndex - 1)));
+		}
+		gameList.add(game);
+		processNewGames();
+	}
+	
+	/* Undoes the last numGames processed games. They stay in gameList and are processed again by 
+	 * the next call to processNewGames(). */
+	public void rollBack(int numGames)
+	{
+		if (numGames < 0 || numGames > gameIndex)
+			throw new IllegalArgumentException(String.format(
+				"Cannot roll back %d games; %d have been processed.", numGames, gameIndex));
+		rewindTo(gameIndex - numGames);
+	}
+	
+	/* Restores the ratings to what they were before the game with the given index, undoing the 
+	 * processed games from that index on in reverse order. Each undone game costs two array
+	 * writes, so rewinding near the end of a season is cheap. Competitors first seen in the
+	 * undone games keep their ordinals, at their starting ratings. */
+	public void rewindTo(int index)
+	{
+		if (index < 0 || index > gameIndex)
+			throw new IllegalArgumentException(String.format(
+				"Cannot rewind to game %d; %d games have been processed.", index, gameIndex));
+		for (int i = gameIndex - 1; i >= index; i--)
+		{
+			int index1 = competitor1s[i], index2 = competitor2s[i];
+			m_ratings[index1] = ratings1Before[i];
+			m_ratings[index2] = ratings2Before[i];
+			if (trackChanges)
 			{
-				map2 = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
-				map2.put(-1, pair.rating2);
-				teamRatingsOverTime.put(comp2, map2);
+				untrack(index1, i);
+				untrack(index2, i);
 			}
-			map2.put(gameIndex, newPair.rating2);
 		}
+		if (checkpoints != null)
+			checkpoints.truncate(index);
+		gameIndex = index;
+	}
+	
+	// Removes a competitor's history from the given game on, with its starting rating if no games remain.
+	private void untrack(int ordinal, int index)
+	{
+		teamRatingsOverTime.truncate(ordinal, index);
+		if (teamRatingsOverTime.size(ordinal) == 1)
+			teamRatingsOverTime.truncate(ordinal, -1);
+	}
+	
+	/* Replaces the game at the given index, e.g. after a score is corrected, and reprocesses it
+	 * and the games after it. Ratings before the game are untouched. */
+	public void correct(int index, Game game)
+	{
+		if (competitorIndex == null)
+			process();
+		rewindTo(index);
+		gameList.set(index, game);
+		processNewGames();
+	}
+	
+	// Assigns ordinals to the competitors in gameList and sets every competitor's starting rating.
+	private void loadGames()
+	{
+		gameIndex = 0;
+		competitorIndex = CompetitorIndex.fromGames(gameList);
+		competitor1s = new int[Math.max(16, gameList.size())];
+		competitor2s = new int[competitor1s.length];
+		ratings1Before = new double[competitor1s.length];
+		ratings2Before = new double[competitor1s.length];
+		
+		m_ratings = new double[competitorIndex.size()];
+		for (int i = 0; i < m_ratings.length; i++)
+			m_ratings[i] = startingRating(i);
+		
+		if (trackChanges)
+			teamRatingsOverTime = new RatingHistory(competitorIndex.size());
+		if (checkpointInterval > 0)
+		{
+			checkpoints = new RatingCheckpoints(checkpointInterval, gameList.size());
+			checkpoints.save(0, m_ratings, competitorIndex.size());
+		}
+		else
+			checkpoints = null;
+	}
+	
+	// Records the ordinals of the game's competitors, indexing any competitor not seen before.
+	private void indexGame(int index, Game game)
+	{
+		if (index == competitor1s.length)
+		{
+			competitor1s = Arrays.copyOf(competitor1s, index * 2);
+			competitor2s = Arrays.copyOf(competitor2s, index * 2);
+			ratings1Before = Arrays.copyOf(ratings1Before, index * 2);
+			ratings2Before = Arrays.copyOf(ratings2Before, index * 2);
+		}
+		competitor1s[index] = indexCompetitor(game.getCompetitor1());
+		competitor2s[index] = indexCompetitor(game.getCompetitor2());
+	}
+	
+	private int indexCompetitor(Competitor competitor)
+	{
+		int ordinal = competitorIndex.ordinalOf(competitor);
+		if (ordinal < 0)
+		{	// A competitor which first appears in an appended game
+			ordinal = competitorIndex.add(competitor);
+			if (ordinal == m_ratings.length)
+				m_ratings = Arrays.copyOf(m_ratings, Math.max(4, ordinal * 2));
+			m_ratings[ordinal] = startingRating(ordinal);
+			if (trackChanges)
+				teamRatingsOverTime.addCompetitor();
+		}
+		return ordinal;
 	}
 	
+	private double startingRating(int ordinal)
+	{
+		return initialRatings.getOrDefault(competitorIndex.competitor(ordinal), defaultRating);
+	}
+	
+	/* Takes a copy of all ratings every 'interval' games as they are processed, so that 
+	 * getRatingsBeforeGame() need replay no more than interval - 1 games. Takes effect on the next
+	 * call to process(). An interval of 0 disables checkpoints. */
+	public void setCheckpointInterval(int interval)
+	{
+		checkpointInterval = Math.max(0, interval);
+	}
+	
+	public int getCheckpointInterval()
+	{
+		return checkpointInterval;
+	}
+	
+	// Update ratings on a game-by-game basis.
+	private void processGame(int index, Game game)
+	{
+		int index1 = competitor1s[index], index2 = competitor2s[index];
+		double oldRating1 = m_ratings[index1], oldRating2 = m_ratings[index2];
+		ratings1Before[index] = oldRating1;
+		ratings2Before[index] = oldRating2;
+		
+		applyGame(m_ratings, index, game);
+		
+		if (this.trackChanges)
+		{	// Record the teams' new ratings, keyed by game number, after their starting ratings.
+			if (teamRatingsOverTime.size(index1) == 0)
+				teamRatingsOverTime.record(index1, -1, oldRating1);
+			teamRatingsOverTime.record(index1, index, m_ratings[index1]);
+			
+			if (teamRatingsOverTime.size(index2) == 0)
+				teamRatingsOverTime.record(index2, -1, oldRating2);
+			teamRatingsOverTime.record(index2, index, m_ratings[index2]);
+		}
+	}
+	
+	// Applies the game with the given index to an array of ratings.
+	private void applyGame(double[] ratings, int index, Game game)
+	{
+		int index1 = competitor1s[index], index2 = competitor2s[index];
+		if (eloFunction != null)
+		{
+			eloFunction.update(ratings, index1, index2, game);
+		}
+		else
+		{	// A general update function needs its ratings boxed in a pair.
+			RatingPair newPair = updateFunction.apply(new RatingPair(ratings[index1], ratings[index2]), game);
+			ratings[index1] = newPair.rating1;
+			ratings[index2] = newPair.rating2;
+		}
+	}
+	
+	// Returns the history of every team's ratings. Null unless changes are tracked.
+	public RatingHistory getRatingHistory()
+	{
+		return teamRatingsOverTime;
+	}
+	
+	// Returns a read-only view of one team's ratings over time, or null if the team has no games.
+	public RatingHistory.Timeline getTimeline(Competitor competitor)
+	{
+		checkTrackingChanges();
+		int ordinal = competitorIndex.ordinalOf(competitor);
+		return ordinal < 0 ? null : teamRatingsOverTime.timeline(ordinal);
+	}
+	
+	/* Returns each team's ratings keyed by game number, with its starting rating under -1. 
+	 * Builds the maps from the rating history; getTimeline() avoids the copy. */
 	public Map<Competitor, TreeMap<Integer, Double>> getRatingsOverTime()
 	{
-		return new HashMap<>(teamRatingsOverTime);
+		checkTrackingChanges();
+		Map<Competitor, TreeMap<Integer, Double>> ratingsOverTime = new HashMap<>();
+		for (int i = 0; i < teamRatingsOverTime.numCompetitors(); i++)
+		{
+			RatingHistory.Timeline timeline = teamRatingsOverTime.timeline(i);
+			TreeMap<Integer, Double> gameToRating = new TreeMap<>();
+			for (int position = 0; position < timeline.size(); position++)
+			{
+				gameToRating.put(timeline.gameIndex(position), timeline.rating(position));
+			}
+			ratingsOverTime.put(competitorIndex.competitor(i), gameToRating);
+		}
+		return ratingsOverTime;
 	}
 	
 	// Returns a map of ratings after the final game in gameList.
 	public Map<Competitor, Double> getFinalRatings()
 	{
 		Map<Competitor, Double> ratingsMap = new HashMap<>();
-		TreeMap<Integer, Double> m_gameToRating;	
-		for (Competitor c: teamRatingsOverTime.keySet())
+		if (m_ratings == null) return ratingsMap;	// No games processed yet
+		for (int i = 0; i < competitorIndex.size(); i++)
 		{
-			m_gameToRating = teamRatingsOverTime.get(c);
-			ratingsMap.put(c, m_gameToRating.lastEntry().getValue());
+			ratingsMap.put(competitorIndex.competitor(i), m_ratings[i]);
 		}
 		
 		return ratingsMap;
 	}
 	
-	// Returns a map of ratings before the specified (0-based) game index.
+	/* Returns a map of ratings before the specified (0-based) game index. Reads the rating history
+	 * if changes are tracked; otherwise, replays games from the nearest checkpoint. */
 	public Map<Competitor, Double> getRatingsBeforeGame(int index)
 	{
+		if (!trackChanges && checkpoints != null)
+			return getRatingsFromCheckpoint(index);
+		
+		checkTrackingChanges();
 		Map<Competitor, Double> ratingsMap = new HashMap<>();
-		Map.Entry<Integer, Double> ratingEntry;
-		for (Competitor c: teamRatingsOverTime.keySet())
+		double rating;
+		for (int i = 0; i < teamRatingsOverTime.numCompetitors(); i++)
 		{
-			ratingEntry = teamRatingsOverTime.get(c).lowerEntry(index);
-			if (ratingEntry != null)
+			rating = teamRatingsOverTime.ratingBefore(i, index);
+			if (!Double.isNaN(rating))
 			{
-				ratingsMap.put(c, ratingEntry.getValue());
+				ratingsMap.put(competitorIndex.competitor(i), rating);
 			}
 		}
 		return ratingsMap;
 	}
+	
+	// Restores the nearest checkpoint at or before the index and replays the games in between.
+	private Map<Competitor, Double> getRatingsFromCheckpoint(int index)
+	{
+		Map<Competitor, Double> ratingsMap = new HashMap<>();
+		if (index < 0) return ratingsMap;	// No ratings exist before the starting ratings
+		
+		index = Math.min(index, gameIndex);
+		double[] ratings = new double[m_ratings.length];
+		for (int i = 0; i < competitorIndex.size(); i++)
+			ratings[i] = startingRating(i);	// For competitors indexed after the checkpoint
+		int replayIndex = checkpoints.checkpointBefore(index);
+		checkpoints.restore(replayIndex, ratings);
+		for (; replayIndex < index; replayIndex++)
+			applyGame(ratings, replayIndex, gameList.get(replayIndex));
+		
+		for (int i = 0; i < competitorIndex.size(); i++)
+		{
+			ratingsMap.put(competitorIndex.competitor(i), ratings[i]);
+		}
+		return ratingsMap;
+	}
+	
+	private void checkTrackingChanges()
+	{
+		if (!trackChanges)
+			throw new RuntimeException("Ratings over time are only available when changes are tracked.");
+		if (teamRatingsOverTime == null)
+			throw new RuntimeException("No games have been processed.");
+	}
 
 }
 
@@ -0,0 +1,181 @@
+package metrics;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import parse.AbstractGame;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Keeps the most recently used processed PowerRatings, so that repeating a query with the same
+ * league, Elo settings, initial rating, and games returns a finished rating timeline instead of
+ * replaying the games. Once the cache holds maxEntries timelines, the least recently used is evicted.
+ *
+ * Games are matched by identity (the readers create each game once), with a fingerprint of the
+ * list standing in for the list in the key. Cached PowerRatings are shared: callers should query
+ * them, not append to them.
+ */
+public class RatingCache {
+
+	private final int maxEntries;
+	private final Map<Key, CachedRatings> entries;
+	private long hits, misses;
+
+	RatingCache(int maxEntries)
+	{
+		this.maxEntries = Math.max(1, maxEntries);
+		entries = new LinkedHashMap<Key, CachedRatings>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CachedRatings> eldest)
+			{
+				return size() > RatingCache.this.maxEntries;
+			}
+		};
+	}
+
+	/* Returns the cached timeline for these inputs, or processes one with the supplier and caches
+	 * it. */
+	@SuppressWarnings("unchecked")
+	public <Game extends AbstractGame<?>> PowerRating<Game> get(Object league,
+			EloFunction<Game> eloFunction, double initial, GameList<Game> gameList,
+			Supplier<PowerRating<Game>> processor)
+	{
+		Key key = new Key(league, eloFunction, initial, gameList);
+		CachedRatings cached = entries.get(key);
+		if (cached != null && cached.hasGames(gameList))
+		{
+			hits++;
+			return (PowerRating<Game>)cached.ratings;
+		}
+
+		misses++;
+		PowerRating<Game> ratings = processor.get();
+		entries.put(key, new CachedRatings(gameList, ratings));
+		return ratings;
+	}
+
+	public long hits()
+	{
+		return hits;
+	}
+
+	public long misses()
+	{
+		return misses;
+	}
+
+	public int size()
+	{
+		return entries.size();
+	}
+
+	public int maxEntries()
+	{
+		return maxEntries;
+	}
+
+	public void clear()
+	{
+		entries.clear();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d/%d entries, %d hits, %d misses", size(), maxEntries, hits, misses);
+	}
+
+	/* Mixes the identity and score of each game into a 64-bit value. Lists holding the same games
+	 * in the same order, with the same scores, have the same fingerprint. */
+	static long fingerprint(List<? extends AbstractGame<?>> gameList)
+	{
+		long hash = 0xcbf29ce484222325L;
+		for (AbstractGame<?> game: gameList)
+		{
+			hash = mix(hash, System.identityHashCode(game));
+			hash = mix(hash, game.getScore1() == null ? -1 : game.getScore1().hashCode());
+			hash = mix(hash, game.getScore2() == null ? -1 : game.getScore2().hashCode());
+		}
+		return hash;
+	}
+
+	private static long mix(long hash, int value)
+	{
+		hash ^= value;
+		hash *= 0x100000001b3L;
+		return hash ^ (hash >>> 29);
+	}
+
+	// The inputs which determine a rating timeline.
+	private static class Key
+	{
+		private final Object league;
+		private final Class<?> functionType;
+		private final double K, homeExpectedWinRate, initial;
+		private final int numGames;
+		private final long fingerprint;
+
+		Key(Object league, EloFunction<?> eloFunction, double initial, List<? extends AbstractGame<?>> gameList)
+		{
+			this.league = league;
+			this.functionType = eloFunction.getClass();
+			this.K = eloFunction.getK();
+			this.homeExpectedWinRate = eloFunction.getHomeAdvantageWinRate();
+			this.initial = initial;
+			this.numGames = gameList.size();
+			this.fingerprint = fingerprint(gameList);
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof Key)) return false;
+			Key key = (Key)o;
+			return league.equals(key.league) && functionType == key.functionType
+					&& Double.compare(K, key.K) == 0
+					&& Double.compare(homeExpectedWinRate, key.homeExpectedWinRate) == 0
+					&& Double.compare(initial, key.initial) == 0
+					&& numGames == key.numGames && fingerprint == key.fingerprint;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int hash = league.hashCode();
+			hash = 31 * hash + functionType.hashCode();
+			hash = 31 * hash + Double.hashCode(K);
+			hash = 31 * hash + Double.hashCode(homeExpectedWinRate);
+			hash = 31 * hash + Double.hashCode(initial);
+			return 31 * hash + Long.hashCode(fingerprint);
+		}
+	}
+
+	private static class CachedRatings
+	{
+		private final AbstractGame<?>[] games;	// The games as they were when processed
+		private final PowerRating<?> ratings;
+
+		CachedRatings(List<? extends AbstractGame<?>> gameList, PowerRating<?> ratings)
+		{
+			this.games = gameList.toArray(new AbstractGame<?>[gameList.size()]);
+			this.ratings = ratings;
+		}
+
+		// Guards against fingerprint collisions.
+		boolean hasGames(List<? extends AbstractGame<?>> gameList)
+		{
+			if (gameList.size() != games.length) return false;
+			for (int i = 0; i < games.length; i++)
+			{
+				if (gameList.get(i) != games[i]) return false;
+			}
+			return true;
+		}
+	}
+}
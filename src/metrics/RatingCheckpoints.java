@@ -0,0 +1,82 @@
+package metrics;
+
+import java.util.Arrays;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Full copies of a PowerRating's ratings array, taken before every interval-th game (games 0,
+ * interval, 2 * interval, ...). Ratings at any point can then be rebuilt by restoring the nearest
+ * earlier checkpoint and replaying at most interval - 1 games.
+ */
+public class RatingCheckpoints implements java.io.Serializable {
+
+	private static final long serialVersionUID = 6409177406313960424L;
+
+	private int interval;
+	private double[][] checkpoints;
+	private int count;
+
+	RatingCheckpoints(int interval, int expectedGames)
+	{
+		if (interval < 1)
+			throw new IllegalArgumentException("Checkpoint interval must be at least 1.");
+		this.interval = interval;
+		checkpoints = new double[expectedGames / interval + 1][];
+	}
+
+	public int getInterval()
+	{
+		return interval;
+	}
+
+	// Number of checkpoints taken so far.
+	public int size()
+	{
+		return count;
+	}
+
+	// True if a checkpoint should be taken before the game with the given index.
+	boolean isDue(int gameIndex)
+	{
+		return gameIndex % interval == 0 && gameIndex / interval == count;
+	}
+
+	/* Saves a copy of the first numCompetitors ratings as they stand before the game with the
+	 * given index. */
+	void save(int gameIndex, double[] ratings, int numCompetitors)
+	{
+		if (!isDue(gameIndex))
+			throw new IllegalArgumentException(String.format("No checkpoint is due at game %d.", gameIndex));
+		if (count == checkpoints.length)
+			checkpoints = Arrays.copyOf(checkpoints, count * 2);
+		checkpoints[count++] = Arrays.copyOf(ratings, numCompetitors);
+	}
+
+	// Discards the checkpoints taken before games after the given index. Later checkpoints become due again.
+	void truncate(int gameIndex)
+	{
+		int kept = Math.max(0, gameIndex) / interval + 1;
+		for (int i = kept; i < count; i++)
+			checkpoints[i] = null;
+		count = Math.min(count, kept);
+	}
+
+	// Returns the index of the game before which the nearest checkpoint at or before gameIndex was taken.
+	int checkpointBefore(int gameIndex)
+	{
+		if (count == 0)
+			throw new RuntimeException("No checkpoints have been taken.");
+		int checkpoint = Math.max(0, Math.min(gameIndex / interval, count - 1));
+		return checkpoint * interval;
+	}
+
+	/* Copies the checkpoint taken before the given game into ratings, which must be large enough.
+	 * Competitors indexed after the checkpoint was taken keep their values in ratings. */
+	void restore(int checkpointGameIndex, double[] ratings)
+	{
+		double[] checkpoint = checkpoints[checkpointGameIndex / interval];
+		System.arraycopy(checkpoint, 0, ratings, 0, checkpoint.length);
+	}
+}
@@ -0,0 +1,166 @@
+package metrics;
+
+import java.util.Arrays;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Stores each competitor's ratings over time as a pair of growable primitive arrays: the indices
+ * of the games the competitor played, in ascending order, and the competitor's rating after each
+ * of those games. Competitors are addressed by their CompetitorIndex ordinal.
+ *
+ * A competitor's first entry conventionally has game index -1 and holds its starting rating.
+ */
+public class RatingHistory implements java.io.Serializable {
+
+	private static final long serialVersionUID = -1838816129946206785L;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int[][] gameIndices;
+	private double[][] ratings;
+	private int[] sizes;
+	private int numCompetitors;
+
+	RatingHistory(int numCompetitors)
+	{
+		gameIndices = new int[numCompetitors][];
+		ratings = new double[numCompetitors][];
+		sizes = new int[numCompetitors];
+		this.numCompetitors = numCompetitors;
+	}
+
+	public int numCompetitors()
+	{
+		return numCompetitors;
+	}
+
+	// Makes room for a competitor with the next ordinal and returns that ordinal.
+	int addCompetitor()
+	{
+		if (numCompetitors == sizes.length)
+		{
+			int capacity = Math.max(4, numCompetitors * 2);
+			gameIndices = Arrays.copyOf(gameIndices, capacity);
+			ratings = Arrays.copyOf(ratings, capacity);
+			sizes = Arrays.copyOf(sizes, capacity);
+		}
+		return numCompetitors++;
+	}
+
+	// Number of entries recorded for the competitor, including its starting rating.
+	public int size(int ordinal)
+	{
+		return sizes[ordinal];
+	}
+
+	/* Appends the competitor's rating after the game with the given index. Game indices must be
+	 * recorded in ascending order for each competitor. */
+	public void record(int ordinal, int gameIndex, double rating)
+	{
+		int size = sizes[ordinal];
+		if (size == 0)
+		{
+			gameIndices[ordinal] = new int[INITIAL_CAPACITY];
+			ratings[ordinal] = new double[INITIAL_CAPACITY];
+		}
+		else if (gameIndices[ordinal][size - 1] >= gameIndex)
+		{
+			throw new IllegalArgumentException(String.format(
+				"Game %d recorded after game %d.", gameIndex, gameIndices[ordinal][size - 1]));
+		}
+		else if (size == gameIndices[ordinal].length)
+		{
+			gameIndices[ordinal] = Arrays.copyOf(gameIndices[ordinal], size * 2);
+			ratings[ordinal] = Arrays.copyOf(ratings[ordinal], size * 2);
+		}
+		gameIndices[ordinal][size] = gameIndex;
+		ratings[ordinal][size] = rating;
+		sizes[ordinal]++;
+	}
+
+	// Discards the competitor's entries for the game with the given index and any later games.
+	void truncate(int ordinal, int gameIndex)
+	{
+		sizes[ordinal] = positionBefore(ordinal, gameIndex) + 1;
+	}
+
+	/* Returns the competitor's rating before the game with the given index, i.e. its rating after
+	 * the last recorded game with a lower index, or NaN if there is no such game. */
+	public double ratingBefore(int ordinal, int gameIndex)
+	{
+		int position = positionBefore(ordinal, gameIndex);
+		return position < 0 ? Double.NaN : ratings[ordinal][position];
+	}
+
+	// Returns the competitor's last recorded rating, or NaN if nothing has been recorded.
+	public double lastRating(int ordinal)
+	{
+		int size = sizes[ordinal];
+		return size == 0 ? Double.NaN : ratings[ordinal][size - 1];
+	}
+
+	// Binary search for the position of the last entry whose game index is lower than gameIndex.
+	private int positionBefore(int ordinal, int gameIndex)
+	{
+		int[] indices = gameIndices[ordinal];
+		int low = 0, high = sizes[ordinal] - 1;
+		while (low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			if (indices[mid] < gameIndex) { low = mid + 1; }
+			else { high = mid - 1; }
+		}
+		return high;
+	}
+
+	public Timeline timeline(int ordinal)
+	{
+		return new Timeline(ordinal);
+	}
+
+	/* A read-only view of one competitor's history. Entries are in chronological order. */
+	public class Timeline
+	{
+		private final int ordinal;
+
+		private Timeline(int ordinal)
+		{
+			this.ordinal = ordinal;
+		}
+
+		public int size()
+		{
+			return sizes[ordinal];
+		}
+
+		public int gameIndex(int position)
+		{
+			checkPosition(position);
+			return gameIndices[ordinal][position];
+		}
+
+		public double rating(int position)
+		{
+			checkPosition(position);
+			return ratings[ordinal][position];
+		}
+
+		public int[] gameIndices()
+		{
+			return size() == 0 ? new int[0] : Arrays.copyOf(gameIndices[ordinal], size());
+		}
+
+		public double[] ratings()
+		{
+			return size() == 0 ? new double[0] : Arrays.copyOf(ratings[ordinal], size());
+		}
+
+		private void checkPosition(int position)
+		{
+			if (position < 0 || position >= size())
+				throw new IndexOutOfBoundsException(String.format(
+					"Position %d (timeline has %d entries).", position, size()));
+		}
+	}
+}
@@ -24,20 +24,20 @@ public class Record implements Comparable<Record> {
 	
 	public double trueWinPercentage()
 	{
-		if (wins + losses + draws == 0)
+		if (getGames() == 0)
 			return 0;
-		return wins / (double)getGames();
+		return getWins() / (double)getGames();
 	}
 	public double winPercentage() 
 	{
-		if (wins + losses + draws == 0)
+		if (getGames() == 0)
 			return 0;
-		return (wins + .5 * draws) / (double)getGames();
+		return (getWins() + .5 * getDraws()) / (double)getGames();
 	}
 	
 	public void add(Record record)
 	{
-		add(record.wins, record.losses, record.draws);
+		add(record.getWins(), record.getLosses(), record.getDraws());
 	}
 	
 	public void add(int wins, int losses, int draws)
@@ -49,7 +49,7 @@ public class Record implements Comparable<Record> {
 	
 	public void subtract(Record record)
 	{
-		subtract(record.wins, record.losses, record.draws);
+		subtract(record.getWins(), record.getLosses(), record.getDraws());
 	}
 	
 	public void subtract(int wins, int losses, int draws)
@@ -61,13 +61,13 @@ public class Record implements Comparable<Record> {
 	
 	public Record inverse()
 	{
-		return new Record(this.losses, this.wins, this.draws);
+		return new Record(getLosses(), getWins(), getDraws());
 	}
 	
 	public int getWins() { return wins; }
 	public int getLosses() { return losses; }
 	public int getDraws() { return draws; }
-	public int getGames() { return wins + losses + draws; }
+	public int getGames() { return getWins() + getLosses() + getDraws(); }
 	
 	public void setRecord(int wins, int losses, int draws)
 	{
@@ -94,12 +94,12 @@ public class Record implements Comparable<Record> {
 	@Override
 	public String toString()
 	{
-		if (draws == 0)
+		if (getDraws() == 0)
 		{
-			return String.format("%d-%d", wins, losses);
+			return String.format("%d-%d", getWins(), getLosses());
 		}
 		else {
-			return String.format("%d-%d-%d", wins, losses, draws);
+			return String.format("%d-%d-%d", getWins(), getLosses(), getDraws());
 		}
 	}
 
@@ -108,11 +108,11 @@ public class Record implements Comparable<Record> {
 		int cmp = Double.compare(this.winPercentage(), record.winPercentage());
 		if (cmp == 0)
 		{
-			cmp = Integer.compare(this.wins, record.wins);
+			cmp = Integer.compare(this.getWins(), record.getWins());
 		}
 		if (cmp == 0)
 		{
-			cmp = -1 * Integer.compare(this.losses, record.losses);
+			cmp = -1 * Integer.compare(this.getLosses(), record.getLosses());
 		}
 		
 		if (cmp == 0)
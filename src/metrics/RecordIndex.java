@@ -0,0 +1,165 @@
+package metrics;
+
+import static metrics.RecordTable.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import nodes.Competitor;
+import parse.AbstractGame;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Cumulative overall, home, and away records for each competitor, by position in a list of games,
+ * so that the record over any window [start, end) of the list is the difference of two cumulative
+ * records rather than a pass over the window's games.
+ *
+ * Each competitor keeps, in primitive arrays, the positions of its completed games and its nine
+ * running totals (overall, home, and away wins, losses, and draws, laid out as in a RecordTable)
+ * after each of them, behind a leading row of zeros. A competitor's totals before position p are
+ * found by a binary search of its own positions, so a lookup costs O(log g) for a competitor with
+ * g games, and the index takes space in proportion to the number of games rather than to games
+ * times competitors. Games are counted as in RecordTable.count().
+ */
+public class RecordIndex<Game extends AbstractGame<?>> {
+
+	private CompetitorIndex competitorIndex = new CompetitorIndex();
+	private int[][] positions = new int[0][];	// By ordinal, the positions of each completed game
+	private int[][] totals = new int[0][];		// By ordinal, ROW totals before the first game and after each
+	private int[] numGames = new int[0];		// By ordinal, the number of positions in use
+	private int size;	// Number of games indexed
+
+	RecordIndex() {}
+
+	RecordIndex(List<? extends Game> games)
+	{
+		addAll(games);
+	}
+
+	// Indexes the games, in order, after those already indexed.
+	void addAll(List<? extends Game> games)
+	{
+		for (Game game: games)
+			add(game);
+	}
+
+	// Indexes a game at the next position.
+	void add(Game game)
+	{
+		int position = size++;
+		if (!game.isComplete()) return;
+
+		int ordinal1 = ordinalOf(game.getCompetitor1()), ordinal2 = ordinalOf(game.getCompetitor2());
+		int[] row1 = nextRow(ordinal1, position), row2 = nextRow(ordinal2, position);
+		RecordTable.count(game, row1, numGames[ordinal1] * ROW, row2, numGames[ordinal2] * ROW);
+	}
+
+	private int ordinalOf(Competitor competitor)
+	{
+		int ordinal = competitorIndex.add(competitor);
+		if (ordinal == positions.length)
+		{
+			int capacity = Math.max(8, ordinal * 2);
+			positions = Arrays.copyOf(positions, capacity);
+			totals = Arrays.copyOf(totals, capacity);
+			numGames = Arrays.copyOf(numGames, capacity);
+		}
+		if (positions[ordinal] == null)
+		{
+			positions[ordinal] = new int[16];
+			totals[ordinal] = new int[17 * ROW];
+		}
+		return ordinal;
+	}
+
+	/* Records the competitor's next game at the position and returns its totals, in which the
+	 * game's row (at numGames * ROW, once counted) starts as a copy of the previous row. */
+	private int[] nextRow(int ordinal, int position)
+	{
+		int count = numGames[ordinal];
+		if (count == positions[ordinal].length)
+		{
+			positions[ordinal] = Arrays.copyOf(positions[ordinal], count * 2);
+			totals[ordinal] = Arrays.copyOf(totals[ordinal], (count * 2 + 1) * ROW);
+		}
+		positions[ordinal][count] = position;
+		int[] rows = totals[ordinal];
+		System.arraycopy(rows, count * ROW, rows, (count + 1) * ROW, ROW);
+		numGames[ordinal] = count + 1;
+		return rows;
+	}
+
+	// The offset of the competitor's totals from before the given position.
+	private int rowBefore(int ordinal, int position)
+	{
+		int low = 0, high = numGames[ordinal];
+		int[] gamePositions = positions[ordinal];
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if (gamePositions[middle] < position)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low * ROW;
+	}
+
+	private void checkWindow(int start, int end)
+	{
+		if (start < 0 || end > size || start > end)
+			throw new IndexOutOfBoundsException(String.format("Window [%d, %d) is out of range for %d games.",
+					start, end, size));
+	}
+
+	private Record record(Competitor competitor, int start, int end, int type)
+	{
+		checkWindow(start, end);
+		int ordinal = competitorIndex.ordinalOf(competitor);
+		if (ordinal < 0) return new Record();
+		int[] rows = totals[ordinal];
+		int from = rowBefore(ordinal, start) + type, to = rowBefore(ordinal, end) + type;
+		return new Record(rows[to + WINS] - rows[from + WINS], rows[to + LOSSES] - rows[from + LOSSES],
+				rows[to + DRAWS] - rows[from + DRAWS]);
+	}
+
+	// The competitor's record in the games at positions [start, end).
+	public Record overallRecord(Competitor competitor, int start, int end)
+	{
+		return record(competitor, start, end, OVERALL);
+	}
+
+	public Record homeRecord(Competitor competitor, int start, int end)
+	{
+		return record(competitor, start, end, HOME);
+	}
+
+	public Record awayRecord(Competitor competitor, int start, int end)
+	{
+		return record(competitor, start, end, AWAY);
+	}
+
+	// Every competitor's records in the games at positions [start, end), in one packed table.
+	public RecordTable table(int start, int end)
+	{
+		checkWindow(start, end);
+		int numCompetitors = competitorIndex.size();
+		int[] counts = new int[numCompetitors * ROW];
+		for (int ordinal = 0; ordinal < numCompetitors; ordinal++)
+		{
+			int[] rows = totals[ordinal];
+			int from = rowBefore(ordinal, start), to = rowBefore(ordinal, end);
+			for (int field = 0; field < ROW; field++)
+				counts[ordinal * ROW + field] = rows[to + field] - rows[from + field];
+		}
+		return new RecordTable(competitorIndex, counts);
+	}
+
+	// Number of games indexed, complete or not.
+	public int size()
+	{
+		return size;
+	}
+}
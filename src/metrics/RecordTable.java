@@ -0,0 +1,236 @@
+package metrics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import nodes.Competitor;
+import parse.AbstractGame;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Overall, home, and away records for a set of competitors, packed into one int block of nine
+ * counts (overall, home, and away wins, losses, and draws) per competitor ordinal. Records are
+ * handed out as read-only views of the block rather than as copies, so a table of standings costs
+ * one array however many competitors it covers.
+ *
+ * A table can be tallied straight from a list of games as a parallel reduction: each fork/join task
+ * counts a chunk of the list into its own block, and blocks are merged by adding them count by
+ * count, as Record.add() would, so the result is the same however the list is split.
+ */
+public class RecordTable {
+
+	// Offsets of each record in a competitor's row, and of wins, losses and draws within a record
+	static final int OVERALL = 0, HOME = 3, AWAY = 6;
+	static final int WINS = 0, LOSSES = 1, DRAWS = 2;
+	static final int ROW = 9;
+	// Fewest games tallied by one task when a list is split across threads
+	private static final int MIN_PARALLEL_GAMES = 4096;
+
+	private final CompetitorIndex competitorIndex;
+	private final int[] counts;	// ROW counts per ordinal
+
+	RecordTable(CompetitorIndex competitorIndex, int[] counts)
+	{
+		this.competitorIndex = competitorIndex;
+		this.counts = counts;
+	}
+
+	/* Tallies the records of the complete games in the list, for the competitors in the index,
+	 * splitting the list across the pool. Lists of fewer than 2 * MIN_PARALLEL_GAMES games are
+	 * tallied on the calling thread. A game's competitor that is not in the index is not counted, but
+	 * its opponent is. The index must not change while the games are tallied. */
+	static RecordTable tally(CompetitorIndex competitorIndex, List<? extends AbstractGame<?>> games,
+			ForkJoinPool pool)
+	{
+		int[] counts = games.size() < 2 * MIN_PARALLEL_GAMES ?
+				tally(competitorIndex, games, 0, games.size()) :
+				pool.invoke(new TallyTask(competitorIndex, games, 0, games.size()));
+		return new RecordTable(competitorIndex, counts);
+	}
+
+	// Counts the games at positions [from, to) into a new block.
+	private static int[] tally(CompetitorIndex competitorIndex, List<? extends AbstractGame<?>> games,
+			int from, int to)
+	{
+		int[] counts = new int[competitorIndex.size() * ROW];
+		for (int i = from; i < to; i++)
+		{
+			AbstractGame<?> game = games.get(i);
+			if (!game.isComplete()) continue;
+			int ordinal1 = competitorIndex.ordinalOf(game.getCompetitor1());
+			int ordinal2 = competitorIndex.ordinalOf(game.getCompetitor2());
+			count(game, ordinal1 < 0 ? null : counts, ordinal1 * ROW, ordinal2 < 0 ? null : counts, ordinal2 * ROW);
+		}
+		return counts;
+	}
+
+	/* Counts a complete game in the rows at offset1 of counts1 (competitor 1's) and at offset2 of
+	 * counts2 (competitor 2's), skipping a side whose counts are null. As TeamRecords always has, a
+	 * draw counts as an away draw for competitor 1 and a home draw for competitor 2 even at a neutral
+	 * site, where wins and losses count only overall. */
+	static void count(AbstractGame<?> game, int[] counts1, int offset1, int[] counts2, int offset2)
+	{
+		int result1, result2;
+		if (game.isADraw())
+		{
+			result1 = result2 = DRAWS;
+		}
+		else
+		{
+			boolean firstWins = game.winner() == game.getCompetitor1();
+			result1 = firstWins ? WINS : LOSSES;
+			result2 = firstWins ? LOSSES : WINS;
+		}
+		boolean sited = game.isADraw() || !game.isNeutralSite();
+		if (counts1 != null)
+		{
+			counts1[offset1 + OVERALL + result1]++;
+			if (sited) counts1[offset1 + AWAY + result1]++;
+		}
+		if (counts2 != null)
+		{
+			counts2[offset2 + OVERALL + result2]++;
+			if (sited) counts2[offset2 + HOME + result2]++;
+		}
+	}
+
+	// Tallies the games [from, to), splitting the range in half down to MIN_PARALLEL_GAMES games.
+	private static class TallyTask extends RecursiveTask<int[]>
+	{
+		private static final long serialVersionUID = -2817443015619730142L;
+		private CompetitorIndex competitorIndex;
+		private List<? extends AbstractGame<?>> games;
+		private int from, to;
+
+		TallyTask(CompetitorIndex competitorIndex, List<? extends AbstractGame<?>> games, int from, int to)
+		{
+			this.competitorIndex = competitorIndex;
+			this.games = games;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected int[] compute()
+		{
+			if (to - from < 2 * MIN_PARALLEL_GAMES)
+				return tally(competitorIndex, games, from, to);
+			int mid = (from + to) >>> 1;
+			TallyTask left = new TallyTask(competitorIndex, games, from, mid);
+			TallyTask right = new TallyTask(competitorIndex, games, mid, to);
+			left.fork();
+			int[] counts = right.compute();
+			int[] leftCounts = left.join();
+			for (int k = 0; k < counts.length; k++)
+				counts[k] += leftCounts[k];
+			return counts;
+		}
+	}
+
+	// A new table of this one's counts plus the other's, which must share its competitor index.
+	RecordTable plus(RecordTable other)
+	{
+		if (other.competitorIndex != competitorIndex)
+			throw new IllegalArgumentException("Tables index competitors differently.");
+		int[] sums = Arrays.copyOf(counts, Math.max(counts.length, other.counts.length));
+		for (int k = 0; k < other.counts.length; k++)
+			sums[k] += other.counts[k];
+		return new RecordTable(competitorIndex, sums);
+	}
+
+	CompetitorIndex competitorIndex()
+	{
+		return competitorIndex;
+	}
+
+	// The competitor's record, or an empty one if the competitor is not in the table.
+	public Record overallRecord(Competitor competitor)
+	{
+		return view(competitor, OVERALL);
+	}
+
+	public Record homeRecord(Competitor competitor)
+	{
+		return view(competitor, HOME);
+	}
+
+	public Record awayRecord(Competitor competitor)
+	{
+		return view(competitor, AWAY);
+	}
+
+	public <C extends Competitor> Map<C, Record> overallRecords(Iterable<C> competitors)
+	{
+		return views(competitors, OVERALL);
+	}
+
+	public <C extends Competitor> Map<C, Record> homeRecords(Iterable<C> competitors)
+	{
+		return views(competitors, HOME);
+	}
+
+	public <C extends Competitor> Map<C, Record> awayRecords(Iterable<C> competitors)
+	{
+		return views(competitors, AWAY);
+	}
+
+	private Record view(Competitor competitor, int type)
+	{
+		// Competitors indexed after the table was filled are not in it.
+		int ordinal = competitorIndex.ordinalOf(competitor);
+		if (ordinal < 0 || ordinal * ROW >= counts.length) return new View(null, 0);
+		return new View(counts, ordinal * ROW + type);
+	}
+
+	private <C extends Competitor> Map<C, Record> views(Iterable<C> competitors, int type)
+	{
+		Map<C, Record> recordMap = new HashMap<>();
+		for (C competitor: competitors)
+			recordMap.put(competitor, view(competitor, type));
+		return recordMap;
+	}
+
+	// Number of competitors in the table.
+	public int size()
+	{
+		return counts.length / ROW;
+	}
+
+	/* A record read from the block. Changing it throws UnsupportedOperationException; copy it into a
+	 * new Record with add() to change it. */
+	private static class View extends Record {
+
+		private final int[] counts;	// Null for a competitor not in the table
+		private final int offset;
+
+		View(int[] counts, int offset)
+		{
+			this.counts = counts;
+			this.offset = offset;
+		}
+
+		@Override public int getWins() { return counts == null ? 0 : counts[offset + WINS]; }
+		@Override public int getLosses() { return counts == null ? 0 : counts[offset + LOSSES]; }
+		@Override public int getDraws() { return counts == null ? 0 : counts[offset + DRAWS]; }
+
+		@Override public void win() { throw readOnly(); }
+		@Override public void lose() { throw readOnly(); }
+		@Override public void draw() { throw readOnly(); }
+		@Override public void add(int wins, int losses, int draws) { throw readOnly(); }
+		@Override public void subtract(int wins, int losses, int draws) { throw readOnly(); }
+		@Override public void setWins(int wins) { throw readOnly(); }
+		@Override public void setLosses(int losses) { throw readOnly(); }
+		@Override public void setDraws(int draws) { throw readOnly(); }
+
+		private static UnsupportedOperationException readOnly()
+		{
+			return new UnsupportedOperationException("Records in a RecordTable are read-only.");
+		}
+	}
+}
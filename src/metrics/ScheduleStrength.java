@@ -0,0 +1,162 @@
+package metrics;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nodes.Competitor;
+import parse.AbstractGame;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Strength of schedule over a list's completed games, as the RPI measures it: a competitor's
+ * winning percentage (WP), its opponents' winning percentage (OWP), and its opponents' opponents'
+ * winning percentage (OOWP). Draws count as half a win, as in Record.winPercentage().
+ *
+ * OWP averages, over each of the competitor's games, the opponent's winning percentage in its other
+ * games, i.e. leaving out its games against the competitor. OOWP averages the opponents' OWPs the
+ * same way (without leaving anything out), and deeper levels of schedule strength repeat the
+ * averaging. Each average is a product with the schedule's adjacency matrix, held as a
+ * SparseMatrix of games played by each pairing, so a level costs one pass over the pairings.
+ */
+public class ScheduleStrength<Game extends AbstractGame<?>> {
+
+	public static final double WP_WEIGHT = 0.25, OWP_WEIGHT = 0.5, OOWP_WEIGHT = 0.25;
+
+	private CompetitorIndex competitorIndex = new CompetitorIndex();
+	// Games played by each pairing, and the row competitor's wins in them, with one layout
+	private SparseMatrix games, wins;
+	private double[] numGames, numWins;	// By ordinal
+
+	ScheduleStrength(List<? extends Game> gameList)
+	{
+		int[] rows = new int[2 * gameList.size()], columns = new int[rows.length];
+		double[] ones = new double[rows.length], results = new double[rows.length];
+		int count = 0;
+		for (Game game: gameList)
+		{
+			if (!game.isComplete()) continue;
+			int index1 = competitorIndex.add(game.getCompetitor1());
+			int index2 = competitorIndex.add(game.getCompetitor2());
+			double result1 = game.isADraw() ? 0.5 : game.winner() == game.getCompetitor1() ? 1 : 0;
+			rows[count] = index1;
+			columns[count] = index2;
+			results[count] = result1;
+			rows[count + 1] = index2;
+			columns[count + 1] = index1;
+			results[count + 1] = 1 - result1;
+			ones[count] = ones[count + 1] = 1;
+			count += 2;
+		}
+		int n = competitorIndex.size();
+		// Identical entry lists, so the two matrices share one layout.
+		games = SparseMatrix.fromEntries(n, rows, columns, ones, count);
+		wins = SparseMatrix.fromEntries(n, rows, columns, results, count);
+
+		numGames = new double[n];
+		numWins = new double[n];
+		for (int i = 0; i < n; i++)
+		{
+			for (int k = games.rowStart(i); k < games.rowStart(i + 1); k++)
+			{
+				numGames[i] += games.value(k);
+				numWins[i] += wins.value(k);
+			}
+		}
+	}
+
+	// Winning percentages, by ordinal.
+	private double[] winPercentages()
+	{
+		double[] percentages = new double[numGames.length];
+		for (int i = 0; i < percentages.length; i++)
+			percentages[i] = numGames[i] > 0 ? numWins[i] / numGames[i] : 0;
+		return percentages;
+	}
+
+	/* Opponents' winning percentages, by ordinal. An opponent's games against the competitor are
+	 * taken out of its record: of the g games the pair played, the opponent won g minus the
+	 * competitor's wins. An opponent with no other games counts as winning none. */
+	private double[] opponentWinPercentages()
+	{
+		double[] percentages = new double[numGames.length];
+		for (int i = 0; i < percentages.length; i++)
+		{
+			double sum = 0;
+			for (int k = games.rowStart(i); k < games.rowStart(i + 1); k++)
+			{
+				int j = games.column(k);
+				double pairGames = games.value(k), otherGames = numGames[j] - pairGames;
+				double otherWins = numWins[j] - (pairGames - wins.value(k));
+				if (otherGames > 0)
+					sum += pairGames * otherWins / otherGames;
+			}
+			percentages[i] = numGames[i] > 0 ? sum / numGames[i] : 0;
+		}
+		return percentages;
+	}
+
+	// Sets averages to each competitor's per-game average of the values over its opponents.
+	private void averageOverOpponents(double[] values, double[] averages)
+	{
+		games.multiply(values, averages);
+		for (int i = 0; i < averages.length; i++)
+			averages[i] = numGames[i] > 0 ? averages[i] / numGames[i] : 0;
+	}
+
+	public Map<Competitor, Double> getWinPercentages()
+	{
+		return toMap(winPercentages());
+	}
+
+	public Map<Competitor, Double> getOpponentWinPercentages()
+	{
+		return toMap(opponentWinPercentages());
+	}
+
+	public Map<Competitor, Double> getOpponentsOpponentWinPercentages()
+	{
+		double[] oowp = new double[numGames.length];
+		averageOverOpponents(opponentWinPercentages(), oowp);
+		return toMap(oowp);
+	}
+
+	// Ratings percentage index: WP, OWP and OOWP weighted 1/4, 1/2 and 1/4.
+	public Map<Competitor, Double> getRPI()
+	{
+		double[] wp = winPercentages(), owp = opponentWinPercentages();
+		double[] rpi = new double[numGames.length];
+		averageOverOpponents(owp, rpi);
+		for (int i = 0; i < rpi.length; i++)
+			rpi[i] = WP_WEIGHT * wp[i] + OWP_WEIGHT * owp[i] + OOWP_WEIGHT * rpi[i];
+		return toMap(rpi);
+	}
+
+	/* Schedule strength to the given depth: at depth 0 each competitor's winning percentage, and at
+	 * each further depth the per-game average of the previous depth over its opponents. Unlike OWP,
+	 * nothing is left out, so depth 1 includes each opponent's games against the competitor. */
+	public Map<Competitor, Double> getScheduleStrength(int depth)
+	{
+		if (depth < 0)
+			throw new IllegalArgumentException("Depth must not be negative.");
+		double[] level = winPercentages(), next = new double[level.length];
+		for (int d = 0; d < depth; d++)
+		{
+			averageOverOpponents(level, next);
+			double[] swap = level;
+			level = next;
+			next = swap;
+		}
+		return toMap(level);
+	}
+
+	private Map<Competitor, Double> toMap(double[] values)
+	{
+		Map<Competitor, Double> valueMap = new HashMap<>();
+		for (int i = 0; i < values.length; i++)
+			valueMap.put(competitorIndex.competitor(i), values[i]);
+		return valueMap;
+	}
+}
@@ -0,0 +1,359 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import nodes.Competitor;
+import nodes.Node;
+import parse.AbstractGame;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Projects final standings by simulating a GameList's incomplete games many times over.
+ *
+ * Ratings start from the Elo ratings after the list's completed games. Each simulated game is won
+ * by competitor 1 with the probability given by the league's EloFunction (expected score, home
+ * advantage included, read from ExpectedScoreTable), and both ratings then move through the
+ * league's own batch update, with its K-factor adjustments (playoffs, stage play), so that a team
+ * on a simulated streak carries it into its next games. Margins are not simulated: every simulated
+ * game is won by the smallest margin, 1, and takes that margin's multiplier.
+ *
+ * Seasons run in parallel on a fork/join pool. They are cut into fixed chunks, each with its own
+ * SplittableRandom split from the seed in chunk order, so a given seed produces the same results
+ * however the chunks are scheduled. Each chunk only adds to histograms of wins, seeds (league-wide
+ * rank by wins, ties going to the higher final rating), and titles (finishing first in the team's
+ * division, i.e. its parent in the team graph), so memory does not grow with the number of seasons.
+ */
+public class SeasonSimulator<Game extends AbstractGame<?>> {
+
+	// Seasons simulated with one random stream; the unit of work for a fork/join leaf.
+	private static final int CHUNK_SIZE = 4096;
+
+	private EloFunction<Game> eloFunction;
+	private CompetitorIndex competitorIndex;
+	private double[] startingRatings;	// Ratings after the completed games, by ordinal
+	private int[] startingWins;			// Wins in the completed games, by ordinal
+	private int[] maxWins;				// Wins if a competitor won every remaining game
+	private int[] groups;				// Division of each competitor, as a dense id
+	private int numGroups;
+
+	// The incomplete games, as competitor ordinals, home-advantage adjustments and GameBatch flags
+	private int[] competitor1s, competitor2s;
+	private double[] homeAdjustments;
+	private int[] flags;
+
+	SeasonSimulator(GameList<Game> gameList, EloFunction<Game> eloFunction, double initialRating)
+	{
+		this.eloFunction = eloFunction;
+		competitorIndex = CompetitorIndex.fromGames(gameList);
+		int numCompetitors = competitorIndex.size();
+
+		List<Game> completeGames = new ArrayList<>(), incompleteGames = new ArrayList<>();
+		for (Game game: gameList)
+		{
+			if (game.isComplete()) { completeGames.add(game); }
+			else { incompleteGames.add(game); }
+		}
+
+		PowerRating<Game> powerRating = new PowerRating<>(null, initialRating, eloFunction,
+				new GameList<>(completeGames), false);
+		powerRating.process();
+		Map<Competitor, Double> currentRatings = powerRating.getFinalRatings();
+
+		startingRatings = new double[numCompetitors];
+		startingWins = new int[numCompetitors];
+		maxWins = new int[numCompetitors];
+		for (int i = 0; i < numCompetitors; i++)
+			startingRatings[i] = currentRatings.getOrDefault(competitorIndex.competitor(i), initialRating);
+		for (Game game: completeGames)
+		{
+			if (game.winner() != null)
+				startingWins[competitorIndex.ordinalOf(game.winner())]++;
+		}
+		System.arraycopy(startingWins, 0, maxWins, 0, numCompetitors);
+
+		competitor1s = new int[incompleteGames.size()];
+		competitor2s = new int[incompleteGames.size()];
+		homeAdjustments = new double[incompleteGames.size()];
+		flags = new int[incompleteGames.size()];
+		GameBatch remainingGames = eloFunction.toBatch(incompleteGames, competitorIndex);
+		for (int i = 0; i < incompleteGames.size(); i++)
+		{
+			Game game = incompleteGames.get(i);
+			competitor1s[i] = remainingGames.competitor1(i);
+			competitor2s[i] = remainingGames.competitor2(i);
+			// Simulated games are played, so the league's update applies them.
+			flags[i] = remainingGames.flags(i) | GameBatch.COMPLETE;
+			// With equal ratings, eloDifference() is exactly the home-advantage adjustment.
+			homeAdjustments[i] = eloFunction.eloDifference(0, 0, game);
+			maxWins[competitor1s[i]]++;
+			maxWins[competitor2s[i]]++;
+		}
+
+		Map<Node<String>, Integer> groupIds = new HashMap<>();
+		groups = new int[numCompetitors];
+		for (int i = 0; i < numCompetitors; i++)
+		{
+			Node<String> parent = competitorIndex.competitor(i).getParent();
+			Integer id = groupIds.get(parent);
+			if (id == null)
+			{
+				id = groupIds.size();
+				groupIds.put(parent, id);
+			}
+			groups[i] = id;
+		}
+		numGroups = groupIds.size();
+	}
+
+	public int numRemainingGames()
+	{
+		return competitor1s.length;
+	}
+
+	// Simulates numSeasons seasons on the common fork/join pool.
+	public Results simulate(long numSeasons, long seed)
+	{
+		return simulate(numSeasons, seed, ForkJoinPool.commonPool());
+	}
+
+	public Results simulate(long numSeasons, long seed, ForkJoinPool pool)
+	{
+		int numChunks = (int)((numSeasons + CHUNK_SIZE - 1) / CHUNK_SIZE);
+		SplittableRandom root = new SplittableRandom(seed);
+		SplittableRandom[] chunkRandoms = new SplittableRandom[numChunks];
+		for (int i = 0; i < numChunks; i++)
+			chunkRandoms[i] = root.split();
+
+		Tally tally = numChunks == 0 ? new Tally() :
+			pool.invoke(new SimulationTask(chunkRandoms, 0, numChunks, numSeasons));
+		return new Results(tally);
+	}
+
+	// Simulates the chunks [fromChunk, toChunk), splitting the range in half until one chunk remains.
+	private class SimulationTask extends RecursiveTask<Tally>
+	{
+		private static final long serialVersionUID = 2214650473925810378L;
+		private SplittableRandom[] chunkRandoms;
+		private int fromChunk, toChunk;
+		private long numSeasons;
+
+		SimulationTask(SplittableRandom[] chunkRandoms, int fromChunk, int toChunk, long numSeasons)
+		{
+			this.chunkRandoms = chunkRandoms;
+			this.fromChunk = fromChunk;
+			this.toChunk = toChunk;
+			this.numSeasons = numSeasons;
+		}
+
+		@Override
+		protected Tally compute()
+		{
+			if (toChunk - fromChunk == 1)
+			{
+				long firstSeason = (long)fromChunk * CHUNK_SIZE;
+				int seasons = (int)Math.min(CHUNK_SIZE, numSeasons - firstSeason);
+				Tally tally = new Tally();
+				simulateChunk(chunkRandoms[fromChunk], seasons, tally);
+				return tally;
+			}
+			int mid = (fromChunk + toChunk) >>> 1;
+			SimulationTask left = new SimulationTask(chunkRandoms, fromChunk, mid, numSeasons);
+			SimulationTask right = new SimulationTask(chunkRandoms, mid, toChunk, numSeasons);
+			left.fork();
+			Tally tally = right.compute();
+			tally.add(left.join());
+			return tally;
+		}
+	}
+
+	private void simulateChunk(SplittableRandom random, int seasons, Tally tally)
+	{
+		int numCompetitors = startingRatings.length;
+		double[] ratings = new double[numCompetitors];
+		int[] wins = new int[numCompetitors];
+		int[] order = new int[numCompetitors];
+		int[] groupLeaders = new int[numGroups];
+		// The remaining games, their scores rewritten with each simulated result
+		GameBatch batch = new GameBatch(competitor1s.length);
+		for (int g = 0; g < competitor1s.length; g++)
+			batch.add(competitor1s[g], competitor2s[g], 0, 0, flags[g]);
+
+		for (int season = 0; season < seasons; season++)
+		{
+			System.arraycopy(startingRatings, 0, ratings, 0, numCompetitors);
+			System.arraycopy(startingWins, 0, wins, 0, numCompetitors);
+
+			for (int g = 0; g < competitor1s.length; g++)
+			{
+				int index1 = competitor1s[g], index2 = competitor2s[g];
+				double expectedScore1 = ExpectedScoreTable.expectedScore(ratings[index2] - ratings[index1]
+						+ homeAdjustments[g]);
+				if (random.nextDouble() < expectedScore1)
+				{
+					batch.scores1[g] = 1;
+					batch.scores2[g] = 0;
+					wins[index1]++;
+				}
+				else
+				{
+					batch.scores1[g] = 0;
+					batch.scores2[g] = 1;
+					wins[index2]++;
+				}
+				eloFunction.update(ratings, batch, g, g + 1);
+			}
+
+			rank(wins, ratings, order);
+			Arrays.fill(groupLeaders, -1);
+			for (int seed = 0; seed < numCompetitors; seed++)
+			{
+				int competitor = order[seed];
+				tally.seeds[competitor][seed]++;
+				if (groupLeaders[groups[competitor]] < 0)
+					groupLeaders[groups[competitor]] = competitor;
+			}
+			for (int competitor: groupLeaders)
+			{
+				if (competitor >= 0)
+					tally.titles[competitor]++;
+			}
+			for (int i = 0; i < numCompetitors; i++)
+				tally.wins[i][wins[i]]++;
+		}
+		tally.seasons += seasons;
+	}
+
+	// Orders competitors by wins, then by rating, both descending. Insertion sort; leagues are small.
+	private static void rank(int[] wins, double[] ratings, int[] order)
+	{
+		for (int i = 0; i < order.length; i++)
+		{
+			int competitor = i, j = i;
+			while (j > 0 && ranksAbove(competitor, order[j - 1], wins, ratings))
+			{
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = competitor;
+		}
+	}
+
+	private static boolean ranksAbove(int competitor, int other, int[] wins, double[] ratings)
+	{
+		if (wins[competitor] != wins[other]) return wins[competitor] > wins[other];
+		return ratings[competitor] > ratings[other];
+	}
+
+	// Mergeable histograms, indexed by competitor ordinal.
+	private class Tally
+	{
+		long seasons;
+		long[][] wins = new long[startingRatings.length][];
+		long[][] seeds = new long[startingRatings.length][startingRatings.length];
+		long[] titles = new long[startingRatings.length];
+
+		Tally()
+		{
+			for (int i = 0; i < wins.length; i++)
+				wins[i] = new long[maxWins[i] + 1];
+		}
+
+		void add(Tally other)
+		{
+			seasons += other.seasons;
+			for (int i = 0; i < wins.length; i++)
+			{
+				for (int w = 0; w < wins[i].length; w++) { wins[i][w] += other.wins[i][w]; }
+				for (int s = 0; s < seeds[i].length; s++) { seeds[i][s] += other.seeds[i][s]; }
+				titles[i] += other.titles[i];
+			}
+		}
+	}
+
+	/* The aggregate outcome of a simulation. Seeds are 1-based. */
+	public class Results
+	{
+		private Tally tally;
+
+		private Results(Tally tally)
+		{
+			this.tally = tally;
+		}
+
+		public long seasons()
+		{
+			return tally.seasons;
+		}
+
+		public List<Competitor> competitors()
+		{
+			List<Competitor> competitors = new ArrayList<>();
+			for (int i = 0; i < competitorIndex.size(); i++)
+				competitors.add(competitorIndex.competitor(i));
+			return competitors;
+		}
+
+		// Number of seasons in which the competitor finished with each possible number of wins.
+		public long[] winHistogram(Competitor competitor)
+		{
+			return tally.wins[ordinal(competitor)].clone();
+		}
+
+		public double expectedWins(Competitor competitor)
+		{
+			long[] histogram = tally.wins[ordinal(competitor)];
+			double total = 0;
+			for (int w = 0; w < histogram.length; w++)
+				total += w * (double)histogram[w];
+			return tally.seasons == 0 ? 0 : total / tally.seasons;
+		}
+
+		// Probability that the competitor finishes with the given seed.
+		public double seedOdds(Competitor competitor, int seed)
+		{
+			if (seed < 1 || seed > competitorIndex.size() || tally.seasons == 0) return 0;
+			return tally.seeds[ordinal(competitor)][seed - 1] / (double)tally.seasons;
+		}
+
+		// Probability that the competitor finishes with one of the seeds 1 through lastSeed.
+		public double topSeedOdds(Competitor competitor, int lastSeed)
+		{
+			double odds = 0;
+			for (int seed = 1; seed <= lastSeed; seed++)
+				odds += seedOdds(competitor, seed);
+			return odds;
+		}
+
+		// Probability that the competitor finishes first in its division.
+		public double titleOdds(Competitor competitor)
+		{
+			return tally.seasons == 0 ? 0 : tally.titles[ordinal(competitor)] / (double)tally.seasons;
+		}
+
+		// Expected wins of every competitor; the same shape as the maps printRecords consumes.
+		public Map<Competitor, Double> expectedWins()
+		{
+			Map<Competitor, Double> map = new HashMap<>();
+			for (int i = 0; i < competitorIndex.size(); i++)
+				map.put(competitorIndex.competitor(i), expectedWins(competitorIndex.competitor(i)));
+			return map;
+		}
+
+		private int ordinal(Competitor competitor)
+		{
+			int ordinal = competitorIndex.ordinalOf(competitor);
+			if (ordinal < 0)
+				throw new IllegalArgumentException(String.format("%s is not in the simulated games.", competitor));
+			return ordinal;
+		}
+	}
+}
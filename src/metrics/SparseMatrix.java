@@ -0,0 +1,199 @@
+package metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* A square matrix in compressed sparse row form: row i's nonzero entries are values[k] in columns
+ * columns[k], for k in [rowStarts[i], rowStarts[i + 1]), with columns ascending. Built once from
+ * lists of (row, column, value) entries, in which repeated positions are summed, e.g. one entry per
+ * game between two teams.
+ */
+public class SparseMatrix {
+
+	// Fewest rows multiplied by one task when a product is split across threads
+	private static final int MIN_PARALLEL_ROWS = 256;
+
+	private final int size;
+	private final int[] rowStarts;
+	private final int[] columns;
+	private final double[] values;
+
+	private SparseMatrix(int size, int[] rowStarts, int[] columns, double[] values)
+	{
+		this.size = size;
+		this.rowStarts = rowStarts;
+		this.columns = columns;
+		this.values = values;
+	}
+
+	/* Builds a size-by-size matrix from the first count entries of the given arrays, summing the
+	 * values of entries at the same position. Two counting sorts, by column and then stably by row,
+	 * order the entries in time linear in count and size. */
+	static SparseMatrix fromEntries(int size, int[] rows, int[] columns, double[] values, int count)
+	{
+		int[] byColumn = countingSort(columns, null, count, size);
+		int[] order = countingSort(rows, byColumn, count, size);
+
+		// Walk the entries in (row, column) order, merging repeated positions.
+		int[] rowStarts = new int[size + 1];
+		int[] mergedColumns = new int[count];
+		double[] mergedValues = new double[count];
+		int merged = 0, row = 0;
+		for (int position = 0; position < count; position++)
+		{
+			int k = order[position];
+			while (row < rows[k])
+				rowStarts[++row] = merged;
+			if (merged > rowStarts[row] && mergedColumns[merged - 1] == columns[k])
+			{
+				mergedValues[merged - 1] += values[k];
+			}
+			else
+			{
+				mergedColumns[merged] = columns[k];
+				mergedValues[merged] = values[k];
+				merged++;
+			}
+		}
+		while (row < size)
+			rowStarts[++row] = merged;
+		return new SparseMatrix(size, rowStarts, Arrays.copyOf(mergedColumns, merged),
+				Arrays.copyOf(mergedValues, merged));
+	}
+
+	/* Returns the entry indices ordered by key, stably with respect to the given order (or to
+	 * index order, if none is given). Keys are in [0, numKeys). */
+	private static int[] countingSort(int[] keys, int[] order, int count, int numKeys)
+	{
+		int[] starts = new int[numKeys + 1];
+		for (int k = 0; k < count; k++)
+			starts[keys[k] + 1]++;
+		for (int key = 0; key < numKeys; key++)
+			starts[key + 1] += starts[key];
+		int[] sorted = new int[count];
+		for (int position = 0; position < count; position++)
+		{
+			int k = order == null ? position : order[position];
+			sorted[starts[keys[k]]++] = k;
+		}
+		return sorted;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	// Number of stored (nonzero) entries.
+	public int numEntries()
+	{
+		return rowStarts[size];
+	}
+
+	// Sets y to this matrix times x. x and y must be different arrays.
+	public void multiply(double[] x, double[] y)
+	{
+		multiplyRows(x, y, 0, size);
+	}
+
+	/* Sets y to this matrix times x, splitting the rows across the pool. Matrices with fewer than
+	 * 2 * MIN_PARALLEL_ROWS rows are multiplied on the calling thread. */
+	public void multiply(double[] x, double[] y, ForkJoinPool pool)
+	{
+		if (size < 2 * MIN_PARALLEL_ROWS)
+			multiplyRows(x, y, 0, size);
+		else
+			pool.invoke(new MultiplyTask(x, y, 0, size));
+	}
+
+	private class MultiplyTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = -6262400530978741947L;
+		private double[] x, y;
+		private int from, to;
+
+		MultiplyTask(double[] x, double[] y, int from, int to)
+		{
+			this.x = x;
+			this.y = y;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from < 2 * MIN_PARALLEL_ROWS)
+			{
+				multiplyRows(x, y, from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new MultiplyTask(x, y, from, mid), new MultiplyTask(x, y, mid, to));
+		}
+	}
+
+	// Sets rows [from, to) of y to the same rows of this matrix times x.
+	void multiplyRows(double[] x, double[] y, int from, int to)
+	{
+		for (int i = from; i < to; i++)
+		{
+			double sum = 0;
+			for (int k = rowStarts[i]; k < rowStarts[i + 1]; k++)
+				sum += values[k] * x[columns[k]];
+			y[i] = sum;
+		}
+	}
+
+	// Returns the diagonal entries, with 0 where none is stored.
+	public double[] diagonal()
+	{
+		double[] diagonal = new double[size];
+		for (int i = 0; i < size; i++)
+		{
+			for (int k = rowStarts[i]; k < rowStarts[i + 1]; k++)
+			{
+				if (columns[k] == i)
+					diagonal[i] = values[k];
+			}
+		}
+		return diagonal;
+	}
+
+	// Position of the row's first stored entry. The row's entries run up to rowStart(row + 1).
+	int rowStart(int row)
+	{
+		return rowStarts[row];
+	}
+
+	int column(int entry)
+	{
+		return columns[entry];
+	}
+
+	double value(int entry)
+	{
+		return values[entry];
+	}
+
+	public double get(int row, int column)
+	{
+		int k = Arrays.binarySearch(columns, rowStarts[row], rowStarts[row + 1], column);
+		return k < 0 ? 0 : values[k];
+	}
+
+	/* Adds value to a stored entry and returns true, or returns false without changing anything
+	 * if no entry is stored at that position. */
+	boolean add(int row, int column, double value)
+	{
+		int k = Arrays.binarySearch(columns, rowStarts[row], rowStarts[row + 1], column);
+		if (k < 0) return false;
+		values[k] += value;
+		return true;
+	}
+}
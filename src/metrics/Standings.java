@@ -0,0 +1,300 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nodes.Competitor;
+import nodes.Division;
+import nodes.GraphIndex;
+import nodes.Node;
+import parse.AbstractGame;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Standings over a competitor graph's leaves, with ties broken as leagues break them. Competitors
+ * are ordered by winning percentage (draws counting half), and each set of tied competitors by, in
+ * turn:
+ * 	1. Winning percentage in the games among the tied competitors (head to head).
+ * 	2. Winning percentage within each group (Division) they all belong to, from the smallest group
+ * 	   up, e.g. division and then conference records for teams of one NBA division.
+ * 	3. Point differential.
+ * 	4. Name.
+ * When a step splits a tie among three or more competitors, each smaller tie is broken from the
+ * head-to-head step again, using only the competitors still tied.
+ *
+ * Games are counted as they are added, into a competitor-by-competitor matrix of head-to-head
+ * wins and draws and into per-competitor records within each group level, so breaking a tie reads
+ * those aggregates rather than the games. Only complete games between two of the graph's
+ * competitors are counted.
+ */
+public class Standings<Game extends AbstractGame<?>> {
+
+	private static final int WINS = 0, LOSSES = 1, DRAWS = 2;
+
+	private CompetitorIndex competitorIndex = new CompetitorIndex();
+	private int numLevels;		// Levels of groups between the root and the competitors
+	private int[][] groupOf;	// By level - 1 and ordinal, the competitor's group at that level, or -1
+	private int[] headToHeadWins, headToHeadDraws;	// Row competitor's against column competitor
+	private int[] overall;		// By ordinal, 3 counts per competitor
+	private int[][] groupRecords;	// By level - 1, 3 counts per competitor of games within its group
+	private double[] pointDifferentials;	// By ordinal
+
+	Standings(GraphIndex<?> competitorGraph, List<? extends Game> gameList)
+	{
+		// Number the leaves, and each group at each level.
+		List<List<Node<?>>> ancestries = new ArrayList<>();
+		indexLeaves(competitorGraph, ancestries);
+		int n = competitorIndex.size();
+		for (List<Node<?>> ancestry: ancestries)
+			numLevels = Math.max(numLevels, ancestry.size());
+		groupOf = new int[numLevels][n];
+		for (int level = 0; level < numLevels; level++)
+		{
+			Map<Node<?>, Integer> groupIds = new HashMap<>();
+			for (int i = 0; i < n; i++)
+			{
+				List<Node<?>> ancestry = ancestries.get(i);
+				if (level < ancestry.size())
+				{
+					Integer id = groupIds.computeIfAbsent(ancestry.get(level), group -> groupIds.size());
+					groupOf[level][i] = id;
+				}
+				else
+					groupOf[level][i] = -1;
+			}
+		}
+
+		headToHeadWins = new int[n * n];
+		headToHeadDraws = new int[n * n];
+		overall = new int[3 * n];
+		groupRecords = new int[numLevels][3 * n];
+		pointDifferentials = new double[n];
+		for (Game game: gameList)
+			add(game);
+	}
+
+	// Indexes the graph's leaves in order, each with its groups from level 1 down.
+	private <K extends Comparable<K>> void indexLeaves(GraphIndex<K> graph, List<List<Node<?>>> ancestries)
+	{
+		for (Node<K> leaf: graph.getLeaves())
+		{
+			if (!(leaf instanceof Competitor) || competitorIndex.contains((Competitor) leaf)) continue;
+			competitorIndex.add((Competitor) leaf);
+			List<Node<?>> groups = new ArrayList<>();
+			for (int level = 1; level < graph.getLevel(leaf); level++)
+			{
+				Node<K> group = graph.getAncestor(leaf, level);
+				if (group instanceof Division) groups.add(group);
+			}
+			ancestries.add(groups);
+		}
+	}
+
+	// Counts a game played after those already counted.
+	void add(Game game)
+	{
+		if (!game.isComplete()) return;
+		int i = competitorIndex.ordinalOf(game.getCompetitor1());
+		int j = competitorIndex.ordinalOf(game.getCompetitor2());
+		if (i < 0 || j < 0 || i == j) return;
+
+		int n = competitorIndex.size();
+		int result1, result2;
+		if (game.isADraw())
+		{
+			result1 = result2 = DRAWS;
+			headToHeadDraws[i * n + j]++;
+			headToHeadDraws[j * n + i]++;
+		}
+		else if (game.winner() == game.getCompetitor1())
+		{
+			result1 = WINS;
+			result2 = LOSSES;
+			headToHeadWins[i * n + j]++;
+		}
+		else
+		{
+			result1 = LOSSES;
+			result2 = WINS;
+			headToHeadWins[j * n + i]++;
+		}
+		overall[3 * i + result1]++;
+		overall[3 * j + result2]++;
+		for (int level = 0; level < numLevels; level++)
+		{
+			if (groupOf[level][i] >= 0 && groupOf[level][i] == groupOf[level][j])
+			{
+				groupRecords[level][3 * i + result1]++;
+				groupRecords[level][3 * j + result2]++;
+			}
+		}
+		double margin = game.getScore1().doubleValue() - game.getScore2().doubleValue();
+		pointDifferentials[i] += margin;
+		pointDifferentials[j] -= margin;
+	}
+
+	/* The competitors in order of standing. Competitors outside the graph come last, in their
+	 * natural order. */
+	public <C extends Competitor> List<C> rank(Collection<C> competitors)
+	{
+		List<Integer> ordinals = new ArrayList<>();
+		List<C> ranked = new ArrayList<>(), unranked = new ArrayList<>();
+		Map<Integer, C> byOrdinal = new HashMap<>();
+		for (C competitor: competitors)
+		{
+			int ordinal = competitorIndex.ordinalOf(competitor);
+			if (ordinal < 0)
+			{
+				unranked.add(competitor);
+				continue;
+			}
+			ordinals.add(ordinal);
+			byOrdinal.put(ordinal, competitor);
+		}
+		// Split by overall winning percentage first, then break each tie.
+		for (int ordinal: order(ordinals, 0))
+			ranked.add(byOrdinal.get(ordinal));
+		Collections.sort(unranked);
+		ranked.addAll(unranked);
+		return ranked;
+	}
+
+	/* Orders the tied ordinals by the given step and those after it. Step 0 is overall winning
+	 * percentage, 1 head to head, 2 to numLevels + 1 the group records from the deepest level up,
+	 * numLevels + 2 point differential. */
+	private List<Integer> order(List<Integer> tied, int step)
+	{
+		if (tied.size() < 2) return tied;
+		for (; step <= numLevels + 2; step++)
+		{
+			Map<Integer, Double> keys = keys(tied, step);
+			if (keys == null || allEqual(keys)) continue;
+
+			List<Integer> sorted = new ArrayList<>(tied);
+			sorted.sort(Comparator.comparing(keys::get, Comparator.reverseOrder()));
+			List<Integer> ordered = new ArrayList<>();
+			int start = 0;
+			for (int k = 1; k <= sorted.size(); k++)
+			{
+				if (k == sorted.size() || !keys.get(sorted.get(k)).equals(keys.get(sorted.get(start))))
+				{	// Teams still tied start again from head to head, among themselves.
+					ordered.addAll(order(new ArrayList<>(sorted.subList(start, k)), 1));
+					start = k;
+				}
+			}
+			return ordered;
+		}
+		List<Integer> sorted = new ArrayList<>(tied);
+		sorted.sort(Comparator.comparing(competitorIndex::competitor));
+		return sorted;
+	}
+
+	// Each tied ordinal's value for the step, or null if the step does not apply to them.
+	private Map<Integer, Double> keys(List<Integer> tied, int step)
+	{
+		Map<Integer, Double> keys = new HashMap<>();
+		if (step == 0)
+		{
+			for (int i: tied)
+				keys.put(i, winPercentage(overall, i));
+		}
+		else if (step == 1)
+		{
+			int n = competitorIndex.size();
+			for (int i: tied)
+			{
+				int wins = 0, losses = 0, draws = 0;
+				for (int j: tied)
+				{
+					wins += headToHeadWins[i * n + j];
+					losses += headToHeadWins[j * n + i];
+					draws += headToHeadDraws[i * n + j];
+				}
+				keys.put(i, winPercentage(wins, losses, draws));
+			}
+		}
+		else if (step <= numLevels + 1)
+		{
+			int level = numLevels - (step - 1);	// Deepest level first, as an index into groupOf
+			int group = groupOf[level][tied.get(0)];
+			for (int i: tied)
+			{
+				if (group < 0 || groupOf[level][i] != group) return null;
+				keys.put(i, winPercentage(groupRecords[level], i));
+			}
+		}
+		else
+		{
+			for (int i: tied)
+				keys.put(i, pointDifferentials[i]);
+		}
+		return keys;
+	}
+
+	private static boolean allEqual(Map<Integer, Double> keys)
+	{
+		Double first = null;
+		for (Double key: keys.values())
+		{
+			if (first == null)
+				first = key;
+			else if (!first.equals(key))
+				return false;
+		}
+		return true;
+	}
+
+	private static double winPercentage(int[] counts, int ordinal)
+	{
+		return winPercentage(counts[3 * ordinal + WINS], counts[3 * ordinal + LOSSES], counts[3 * ordinal + DRAWS]);
+	}
+
+	// As Record.winPercentage().
+	private static double winPercentage(int wins, int losses, int draws)
+	{
+		int games = wins + losses + draws;
+		return games == 0 ? 0 : (wins + .5 * draws) / games;
+	}
+
+	// The competitor's record in the games counted.
+	public Record overallRecord(Competitor competitor)
+	{
+		int i = competitorIndex.ordinalOf(competitor);
+		if (i < 0) return new Record();
+		return new Record(overall[3 * i + WINS], overall[3 * i + LOSSES], overall[3 * i + DRAWS]);
+	}
+
+	// The first competitor's record against the second.
+	public Record headToHeadRecord(Competitor competitor, Competitor opponent)
+	{
+		int i = competitorIndex.ordinalOf(competitor), j = competitorIndex.ordinalOf(opponent);
+		if (i < 0 || j < 0) return new Record();
+		int n = competitorIndex.size();
+		return new Record(headToHeadWins[i * n + j], headToHeadWins[j * n + i], headToHeadDraws[i * n + j]);
+	}
+
+	/* The competitor's record against the other competitors of its group at the given level, where
+	 * level 1 holds the root's children. */
+	public Record groupRecord(Competitor competitor, int level)
+	{
+		if (level < 1 || level > numLevels)
+			throw new IllegalArgumentException(String.format("Groups are at levels 1 to %d.", numLevels));
+		int i = competitorIndex.ordinalOf(competitor);
+		if (i < 0) return new Record();
+		int[] counts = groupRecords[level - 1];
+		return new Record(counts[3 * i + WINS], counts[3 * i + LOSSES], counts[3 * i + DRAWS]);
+	}
+
+	public double pointDifferential(Competitor competitor)
+	{
+		int i = competitorIndex.ordinalOf(competitor);
+		return i < 0 ? 0 : pointDifferentials[i];
+	}
+}
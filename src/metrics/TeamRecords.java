@@ -2,9 +2,9 @@ package metrics;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import nodes.Competitor;
-import nodes.Team;
 import parse.AbstractGame;
 
 /**
@@ -18,9 +18,11 @@ import parse.AbstractGame;
 public class TeamRecords<Game extends AbstractGame<?>, C extends Competitor> {
 	
 	private Map<String, C> competitorMap;
-	private Map<C, Record> overallRecords, awayRecords, homeRecords;
 	//private List<Game> gameList;
 	private GameList<Game> gameList;
+	private int gamesRead;	// Number of games in gameList already counted in the records
+	private RecordTable table;	// Records of the games counted, for the competitors in competitorMap
+	private RecordIndex<Game> recordIndex;	// Cumulative records for windows, built when first needed
 	
 	TeamRecords(Map<String, C> teamMap, GameList<Game> gameList)
 	{
@@ -28,95 +30,161 @@ public class TeamRecords<Game extends AbstractGame<?>, C extends Competitor> {
 		this.gameList = gameList;
 	}
 	
+	// Records of the games counted so far, as read-only views of one packed table.
 	public Map<C, Record> teamRecords()
 	{
-		return new HashMap<>(overallRecords);
+		return table().overallRecords(competitorMap.values());
 	}
 	
 	public Map<C, Record> homeRecords()
 	{
-		return new HashMap<>(homeRecords);
+		return table().homeRecords(competitorMap.values());
 	}
 	
 	public Map<C, Record> awayRecords()
 	{
-		return new HashMap<>(awayRecords);
+		return table().awayRecords(competitorMap.values());
+	}
+	
+	/* Records over the games at positions [start, end) of gameList, from the cumulative records,
+	 * without reading the games again. A TemporalIndex over a date-ordered list gives the positions
+	 * for a range of dates. */
+	public Map<C, Record> teamRecords(int start, int end)
+	{
+		return table(start, end).overallRecords(competitorMap.values());
+	}
+	
+	public Map<C, Record> homeRecords(int start, int end)
+	{
+		return table(start, end).homeRecords(competitorMap.values());
+	}
+	
+	public Map<C, Record> awayRecords(int start, int end)
+	{
+		return table(start, end).awayRecords(competitorMap.values());
+	}
+	
+	// All the records of the games counted so far.
+	public RecordTable table()
+	{
+		return table;
+	}
+	
+	// All the records of the games at positions [start, end), which must have been counted.
+	public RecordTable table(int start, int end)
+	{
+		if (recordIndex == null)
+			recordIndex = new RecordIndex<>();
+		for (int position = recordIndex.size(); position < gamesRead; position++)
+		{
+			recordIndex.add(gameList.get(position));
+		}
+		return recordIndex.table(start, end);
 	}
 	
 	/* 	Note: A team's opponent record may include games in which this team faced the opponent.
+	 * 	Each team's opponent record is the schedule's adjacency matrix (games played by each pairing)
+	 * 	times the vectors of wins, losses and draws. Games involving a team without a record are
+	 * 	left out.
 	 */
 	public static <N extends AbstractGame<?>, C extends Competitor> 
 		Map<C, Record> opponentRecords(Map<C, Record> teamRecords, GameList<N> gameList)
 	{
-		Map<C, Record> oppRecordMap = new HashMap<>();
+		return opponentRecords(teamRecords, gameList, ForkJoinPool.commonPool());
+	}
+	
+	// As above, with the products split across the pool for leagues with many teams.
+	public static <N extends AbstractGame<?>, C extends Competitor> 
+		Map<C, Record> opponentRecords(Map<C, Record> teamRecords, GameList<N> gameList, ForkJoinPool pool)
+	{
+		CompetitorIndex competitorIndex = new CompetitorIndex();
 		for (C t: teamRecords.keySet())
 		{
-			oppRecordMap.put(t, new Record());
+			competitorIndex.add(t);
 		}
-		
+		int n = competitorIndex.size();
+		int[] rows = new int[2 * gameList.size()], columns = new int[rows.length];
+		double[] ones = new double[rows.length];
+		int count = 0;
 		for (N g: gameList)
 		{
-			Team team1 = (Team)g.getCompetitor1();
-			Team team2 = (Team)g.getCompetitor2();
-			
-			oppRecordMap.get(team1).add(teamRecords.get(team2));
-			oppRecordMap.get(team2).add(teamRecords.get(team1));
+			int index1 = competitorIndex.ordinalOf(g.getCompetitor1());
+			int index2 = competitorIndex.ordinalOf(g.getCompetitor2());
+			if (index1 < 0 || index2 < 0) continue;
+			rows[count] = index1;
+			columns[count] = index2;
+			rows[count + 1] = index2;
+			columns[count + 1] = index1;
+			ones[count] = ones[count + 1] = 1;
+			count += 2;
+		}
+		SparseMatrix schedule = SparseMatrix.fromEntries(n, rows, columns, ones, count);
+		
+		double[] wins = new double[n], losses = new double[n], draws = new double[n];
+		for (int i = 0; i < n; i++)
+		{
+			Record record = teamRecords.get(competitorIndex.competitor(i));
+			wins[i] = record.getWins();
+			losses[i] = record.getLosses();
+			draws[i] = record.getDraws();
+		}
+		double[] oppWins = new double[n], oppLosses = new double[n], oppDraws = new double[n];
+		schedule.multiply(wins, oppWins, pool);
+		schedule.multiply(losses, oppLosses, pool);
+		schedule.multiply(draws, oppDraws, pool);
+		
+		Map<C, Record> oppRecordMap = new HashMap<>();
+		for (C t: teamRecords.keySet())
+		{
+			int i = competitorIndex.ordinalOf(t);
+			oppRecordMap.put(t, new Record((int) oppWins[i], (int) oppLosses[i], (int) oppDraws[i]));
 		}
 		return oppRecordMap;
 	}
-	// Commences the read.
+	// Commences the read, on the common fork/join pool.
 	public void readGames()
 	{
-		overallRecords = new HashMap<>();
-		awayRecords = new HashMap<>();
-		homeRecords = new HashMap<>();
-		
+		readGames(ForkJoinPool.commonPool());
+	}
+	
+	/* Tallies the whole of gameList, split into chunks across the pool (see RecordTable.tally()).
+	 * Games against competitors outside competitorMap count only for the competitor inside it. */
+	public void readGames(ForkJoinPool pool)
+	{
+		CompetitorIndex competitorIndex = new CompetitorIndex();
 		for (C t: competitorMap.values())
 		{
-			overallRecords.put(t, new Record());
-			homeRecords.put(t, new Record());
-			awayRecords.put(t, new Record());
+			competitorIndex.add(t);
 		}
-		
-		for (Game g: gameList)
+		gamesRead = gameList.size();
+		table = RecordTable.tally(competitorIndex, gameList, pool);
+		recordIndex = null;
+	}
+	
+	/* Counts only the games added to the end of gameList since the last call to readGames() or
+	 * readNewGames(), keeping the current records. Records handed out earlier do not change. */
+	public void readNewGames()
+	{
+		if (table == null)
 		{
-			Team team1 = (Team)g.getCompetitor1();
-			Team team2 = (Team)g.getCompetitor2();
-			
-			if (g.isComplete())
-			{
-				if (g.isADraw())
-				{
-					overallRecords.get(team1).draw();
-					overallRecords.get(team2).draw();
-					awayRecords.get(team1).draw();
-					homeRecords.get(team2).draw();
-				} 
-				else {
-					if (g.winner() == team1)
-					{
-						overallRecords.get(team1).win();
-						overallRecords.get(team2).lose();
-						if (!g.isNeutralSite())
-						{
-							awayRecords.get(team1).win();
-							homeRecords.get(team2).lose();
-						}
-					}
-					else
-					{
-						overallRecords.get(team2).win();
-						overallRecords.get(team1).lose();
-						if (!g.isNeutralSite())
-						{
-							awayRecords.get(team1).lose();
-							homeRecords.get(team2).win();
-						}
-					}
-				}
-			}
+			readGames();
+			return;
+		}
+		if (gamesRead < gameList.size())
+		{
+			table = table.plus(RecordTable.tally(table.competitorIndex(), gameList.subList(gamesRead,
+					gameList.size()), ForkJoinPool.commonPool()));
+			gamesRead = gameList.size();
 		}
 	}
+	
+	// Adds a newly completed game to the end of gameList and counts it in the records.
+	public void append(Game game)
+	{
+		if (table == null)
+			readGames();
+		gameList.add(game);
+		readNewGames();
+	}
 
 }
-
@@ -0,0 +1,174 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import parse.AbstractGame;
+import parse.CFLGame;
+import parse.NBAGame;
+import parse.OWLGame;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Maps dates and league periods (CFL weeks, OWL stages and weeks) to positions in a list of games,
+ * so that the start or end of a stretch of games is found by binary search instead of a scan.
+ *
+ * Each lookup answers the question a front-to-back scan would: the index of the first game whose
+ * date (or period) is at or after, or after, a bound. Keys are stored as running maximums, which
+ * are ascending even when the list is not (e.g. incomplete games sorted after complete ones), so
+ * binary search over them stops where the scan would. When the list is ascending by a key, the
+ * lookups for that key bound half-open ranges [start, end) holding exactly the matching games.
+ *
+ * Dates are compared as instants, like Date.compareTo. The index is built once; it does not follow
+ * later changes to the list.
+ */
+public class TemporalIndex<Game extends AbstractGame<?>> {
+
+	private final List<Game> games;
+	private final long[] latestTimes;	// Latest date up to each game, in milliseconds
+	private final long[] latestPeriods;	// Latest period up to each game, or null
+	private final boolean timesAscending, periodsAscending;
+
+	TemporalIndex(List<Game> games, ToLongFunction<? super Game> period)
+	{
+		this.games = Collections.unmodifiableList(games);
+		int size = games.size();
+		latestTimes = new long[size];
+		latestPeriods = period == null ? null : new long[size];
+		boolean timesAscending = true, periodsAscending = true;
+
+		for (int i = 0; i < size; i++)
+		{
+			Game game = games.get(i);
+			long time = game.getDate().getTime();
+			timesAscending &= i == 0 || time >= latestTimes[i - 1];
+			latestTimes[i] = i == 0 ? time : Math.max(time, latestTimes[i - 1]);
+			if (period != null)
+			{
+				long key = period.applyAsLong(game);
+				periodsAscending &= i == 0 || key >= latestPeriods[i - 1];
+				latestPeriods[i] = i == 0 ? key : Math.max(key, latestPeriods[i - 1]);
+			}
+		}
+		this.timesAscending = timesAscending;
+		this.periodsAscending = period != null && periodsAscending;
+	}
+
+	public static TemporalIndex<NBAGame> nba(List<NBAGame> games)
+	{
+		return new TemporalIndex<>(games, null);
+	}
+
+	// CFL periods are week numbers.
+	public static TemporalIndex<CFLGame> cfl(List<CFLGame> games)
+	{
+		return new TemporalIndex<>(games, game -> game.getWeekNumber());
+	}
+
+	// OWL periods are stage and week together, ordered by stage first (see stageAndWeek).
+	public static TemporalIndex<OWLGame> owl(List<OWLGame> games)
+	{
+		return new TemporalIndex<>(games, game -> stageAndWeek(game.getStageNumber(), game.getWeekNumber()));
+	}
+
+	/* Returns a copy of the games, stably sorted by date, for indexing. Games on the same date keep
+	 * their relative order. */
+	public static <Game extends AbstractGame<?>> List<Game> byDate(List<Game> games)
+	{
+		List<Game> sorted = new ArrayList<>(games);
+		sorted.sort(Comparator.comparing(game -> game.getDate()));
+		return sorted;
+	}
+
+	/* Combines a stage and week into one period key. Comparing keys compares stages, then weeks,
+	 * for any int stage and week, so stageAndWeek(s, Integer.MIN_VALUE) and
+	 * stageAndWeek(s, Integer.MAX_VALUE) bound every game in stage s. */
+	public static long stageAndWeek(int stage, int week)
+	{
+		return ((long)stage << 32) + week;
+	}
+
+	public List<Game> games()
+	{
+		return games;
+	}
+
+	public int size()
+	{
+		return games.size();
+	}
+
+	// True if the games are in date order, so that date lookups bound exact ranges.
+	public boolean isDateOrdered()
+	{
+		return timesAscending;
+	}
+
+	// True if the games are in period order, so that period lookups bound exact ranges.
+	public boolean isPeriodOrdered()
+	{
+		return periodsAscending;
+	}
+
+	// Index of the first game on or after date (a game the scan for date >= date would stop at).
+	public int startOfDate(Date date)
+	{
+		return firstAbove(latestTimes, date.getTime() - 1);
+	}
+
+	// Index of the first game after date, i.e. one past the games up to and including date.
+	public int endOfDate(Date date)
+	{
+		return firstAbove(latestTimes, date.getTime());
+	}
+
+	// Index of the first game in or after the period.
+	public int startOfPeriod(long period)
+	{
+		checkPeriods();
+		return period == Long.MIN_VALUE ? 0 : firstAbove(latestPeriods, period - 1);
+	}
+
+	// Index of the first game after the period.
+	public int endOfPeriod(long period)
+	{
+		checkPeriods();
+		return firstAbove(latestPeriods, period);
+	}
+
+	// OWL: the games of the given stage are [startOfStage(stage), endOfStage(stage)) when ordered.
+	public int startOfStage(int stage)
+	{
+		return startOfPeriod(stageAndWeek(stage, Integer.MIN_VALUE));
+	}
+
+	public int endOfStage(int stage)
+	{
+		return endOfPeriod(stageAndWeek(stage, Integer.MAX_VALUE));
+	}
+
+	private void checkPeriods()
+	{
+		if (latestPeriods == null)
+			throw new RuntimeException("These games are not indexed by period.");
+	}
+
+	// Binary search for the first index whose key exceeds bound; keys.length if there is none.
+	private static int firstAbove(long[] keys, long bound)
+	{
+		int low = 0, high = keys.length;
+		while (low < high)
+		{
+			int mid = (low + high) >>> 1;
+			if (keys[mid] > bound) { high = mid; }
+			else { low = mid + 1; }
+		}
+		return low;
+	}
+}
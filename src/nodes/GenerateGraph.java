@@ -2,9 +2,10 @@ package nodes;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -23,7 +24,7 @@ public class GenerateGraph implements java.io.Serializable, Runnable {
 
 	public void writeOutput() throws FileNotFoundException, IOException
 	{
-		ObjectOutputStream ostream = new ObjectOutputStream(new FileOutputStream(this.output));
+		OutputStream ostream = new BufferedOutputStream(new FileOutputStream(this.output));
 		Scanner istream = new Scanner(source);
 		String line, type;
 		int typeEndIndex, numTabs;
@@ -112,7 +113,7 @@ public class GenerateGraph implements java.io.Serializable, Runnable {
 		Node<String> root = parentNodes.get(0);
 		Graph<String> graph = new Graph<>();
 		graph.setRoot(root);
-		ostream.writeObject(graph);
+		GraphFormat.write(graph, ostream);
 		ostream.close();
 	}
 
@@ -0,0 +1,202 @@
+package nodes;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* The binary file format for team graphs (the *-graph.dat files), in place of serialized Graph
+ * objects. In order, big-endian:
+ * 	- The magic number 0x54475246 ("TGRF") and a format version (short).
+ * 	- A string table: the number of strings (int), then each string as its length in bytes (int)
+ * 	  and its UTF-8 bytes.
+ * 	- The number of nodes (int), then each node in preorder: its type (byte), the preorder number of
+ * 	  its parent (int, -1 for the root, otherwise less than its own), and the ids in the string table
+ * 	  of its constructor's arguments (int each): name and short name for a League; type name, full
+ * 	  name and short name for a Division; short name, city and nickname for a Team.
+ * Keys are not stored, since each node's constructor derives its key. Reading is one pass over the
+ * records, straight from the file's bytes, each node created and attached to its parent in turn, and
+ * returns the graph already indexed. Files written by serializing a Graph are still read, though
+ * slowly.
+ */
+public class GraphFormat {
+
+	private static final int MAGIC = 0x54475246;
+	private static final short VERSION = 1;
+	private static final short SERIALIZED_MAGIC = (short) 0xACED;	// ObjectOutputStream's
+	private static final byte LEAGUE = 0, DIVISION = 1, TEAM = 2;
+	// Fewest bytes a string (its length) and a node (type, parent and two string ids) can take
+	private static final int STRING_BYTES = 4, NODE_BYTES = 1 + 4 + 2 * 4;
+
+	private GraphFormat() {}
+
+	public static void write(Graph<String> graph, OutputStream out) throws IOException
+	{
+		GraphIndex<String> index = new GraphIndex<>(graph);
+		Map<String, Integer> strings = new LinkedHashMap<>();
+		List<String[]> fields = new ArrayList<>();
+		byte[] types = new byte[index.size()];
+		for (int number = 0; number < index.size(); number++)
+		{
+			Node<String> node = index.getNode(number);
+			String[] nodeFields;
+			if (node instanceof League)
+			{
+				League league = (League) node;
+				types[number] = LEAGUE;
+				nodeFields = new String[] { league.getName(), league.getShortName() };
+			}
+			else if (node instanceof Division)
+			{
+				Division division = (Division) node;
+				types[number] = DIVISION;
+				nodeFields = new String[] { division.getTypeName(), division.getFullName(),
+						division.getShortName() };
+			}
+			else if (node instanceof Team)
+			{
+				Team team = (Team) node;
+				types[number] = TEAM;
+				nodeFields = new String[] { team.getShortName(), team.getCity(), team.getNickname() };
+			}
+			else
+			{
+				throw new IllegalArgumentException(String.format("Cannot write node %s of type %s.",
+						node.getKey(), node.getClass().getSimpleName()));
+			}
+			for (String field: nodeFields)
+				strings.putIfAbsent(field, strings.size());
+			fields.add(nodeFields);
+		}
+
+		DataOutputStream ostream = new DataOutputStream(out);
+		ostream.writeInt(MAGIC);
+		ostream.writeShort(VERSION);
+		ostream.writeInt(strings.size());
+		for (String string: strings.keySet())
+		{
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			ostream.writeInt(bytes.length);
+			ostream.write(bytes);
+		}
+		ostream.writeInt(index.size());
+		for (int number = 0; number < index.size(); number++)
+		{
+			ostream.writeByte(types[number]);
+			ostream.writeInt(index.getParentNumber(number));
+			for (String field: fields.get(number))
+				ostream.writeInt(strings.get(field));
+		}
+		ostream.flush();
+	}
+
+	public static GraphIndex<String> read(File file) throws IOException
+	{
+		return read(Files.readAllBytes(file.toPath()));
+	}
+
+	@SuppressWarnings("unchecked")
+	public static GraphIndex<String> read(byte[] bytes) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		try
+		{
+			if (bytes.length >= 2 && buffer.getShort(0) == SERIALIZED_MAGIC)
+			{	// An older file, holding a serialized Graph
+				ObjectInputStream istream = new ObjectInputStream(new ByteArrayInputStream(bytes));
+				return new GraphIndex<>((Graph<String>) istream.readObject());
+			}
+			if (buffer.getInt() != MAGIC)
+				throw new IOException("Not a team graph file.");
+			short version = buffer.getShort();
+			if (version != VERSION)
+				throw new IOException(String.format("Unsupported team graph file version %d (expected %d).",
+						version, VERSION));
+
+			// Counts and lengths are checked against the bytes left before anything is allocated.
+			String[] strings = new String[count(buffer, STRING_BYTES, "strings")];
+			for (int id = 0; id < strings.length; id++)
+			{
+				int length = count(buffer, 1, "string bytes");
+				strings[id] = new String(bytes, buffer.position(), length, StandardCharsets.UTF_8);
+				buffer.position(buffer.position() + length);
+			}
+
+			int size = count(buffer, NODE_BYTES, "nodes");
+			Node<String>[] nodes = (Node<String>[]) new Node<?>[size];
+			int[] parents = new int[size];
+			for (int number = 0; number < size; number++)
+			{
+				byte type = buffer.get();
+				int parent = buffer.getInt();
+				if (number == 0 ? parent != -1 : parent < 0 || parent >= number)
+					throw new IOException(String.format("Node %d has an invalid parent, %d.", number, parent));
+				switch (type)
+				{
+					case LEAGUE:
+						nodes[number] = new League(string(strings, buffer), string(strings, buffer));
+						break;
+					case DIVISION:
+						nodes[number] = new Division(string(strings, buffer), string(strings, buffer),
+								string(strings, buffer));
+						break;
+					case TEAM:
+						nodes[number] = new Team(string(strings, buffer), string(strings, buffer),
+								string(strings, buffer));
+						break;
+					default:
+						throw new IOException(String.format("Node %d has an unknown type, %d.", number, type));
+				}
+				parents[number] = parent;
+				if (parent >= 0)
+					nodes[parent].addChild(nodes[number]);
+			}
+
+			Graph<String> graph = new Graph<>();
+			if (size > 0)
+				graph.setRoot(nodes[0]);
+			return new GraphIndex<>(graph, nodes, parents);
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex)
+		{
+			throw new IOException("The team graph file is truncated or corrupt.", ex);
+		}
+		catch (ClassNotFoundException ex)
+		{
+			throw new IOException("Could not read the serialized graph.", ex);
+		}
+	}
+
+	/* Reads a count of items, each taking at least itemBytes, and checks that that many items could
+	 * fit in the bytes left. */
+	private static int count(ByteBuffer buffer, int itemBytes, String items) throws IOException
+	{
+		int count = buffer.getInt();
+		if (count < 0 || count > buffer.remaining() / itemBytes)
+			throw new IOException(String.format("The team graph file is truncated or corrupt (%d %s).",
+					count, items));
+		return count;
+	}
+
+	private static String string(String[] strings, ByteBuffer buffer) throws IOException
+	{
+		int id = buffer.getInt();
+		if (id < 0 || id >= strings.length)
+			throw new IOException(String.format("String id %d is out of range.", id));
+		return strings[id];
+	}
+}
@@ -0,0 +1,227 @@
+package nodes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* A frozen, indexed view of a Graph, for answering lookups without walking the graph.
+ * 	- Keys map to nodes through a hash map. Where keys repeat, a key finds the node that
+ * 	  Graph.findNode() would, the first in level order.
+ * 	- Each level's nodes are kept, in the order Graph.getNodesAtLevel() gives them, as a read-only
+ * 	  list made once, so asking for a level allocates nothing however deep it is.
+ * 	- Nodes are numbered in depth-first (pre)order, with arrays by number of each node's parent,
+ * 	  level, and the number of the last node in its subtree. A node lies under another if its number
+ * 	  falls in the other's range: two integer comparisons. Ancestors are found through the parent
+ * 	  array.
+ * 	- The leaves are kept in one array in depth-first order, so each node's leaves are a contiguous
+ * 	  slice of it, also made once. The leaves are the graph's competitors at whatever depth they sit.
+ * The view does not follow later changes to the graph.
+ */
+public class GraphIndex<T extends Comparable<T>> {
+
+	private final Graph<T> graph;
+	private final Map<T, Node<T>> nodesByKey = new HashMap<>();
+	private final Map<Node<T>, Integer> numbers = new IdentityHashMap<>();	// Preorder numbers
+	private final List<List<Node<T>>> levels = new ArrayList<>();	// Read-only, by level
+	private final List<Node<T>> leaves = new ArrayList<>();
+	private final List<Node<T>> leavesView = Collections.unmodifiableList(leaves);
+	// By preorder number
+	private Node<T>[] nodes;
+	private int[] parents, depths, lastInSubtree;	// A parent of -1 marks the root
+	private List<Node<T>>[] leafSlices;
+
+	public GraphIndex(Graph<T> graph)
+	{
+		this(graph, preorder(graph.getRoot()));
+	}
+
+	private GraphIndex(Graph<T> graph, List<Node<T>> preorder)
+	{
+		this(graph, toArray(preorder), parentsOf(preorder));
+	}
+
+	/* Indexes a graph whose nodes, in preorder, are given with the number of each one's parent (-1 for
+	 * the root), in one pass over the nodes and one back over them. */
+	@SuppressWarnings("unchecked")
+	GraphIndex(Graph<T> graph, Node<T>[] nodes, int[] parents)
+	{
+		this.graph = graph;
+		int size = nodes.length;
+		this.nodes = nodes;
+		this.parents = parents;
+		depths = new int[size];
+		lastInSubtree = new int[size];
+		int[] leafStarts = new int[size];
+		List<List<Node<T>>> byLevel = new ArrayList<>();
+		for (int number = 0; number < size; number++)
+		{
+			Node<T> node = nodes[number];
+			numbers.put(node, number);
+			depths[number] = parents[number] < 0 ? 0 : depths[parents[number]] + 1;
+			lastInSubtree[number] = number;
+			leafStarts[number] = leaves.size();
+			if (!node.hasChildren())
+				leaves.add(node);
+			// Preorder, taken a level at a time, is level order.
+			if (depths[number] == byLevel.size())
+				byLevel.add(new ArrayList<>());
+			byLevel.get(depths[number]).add(node);
+		}
+		for (int number = size - 1; number > 0; number--)
+		{
+			int parent = parents[number];
+			lastInSubtree[parent] = Math.max(lastInSubtree[parent], lastInSubtree[number]);
+		}
+		leafSlices = (List<Node<T>>[]) new List<?>[size];
+		for (int number = 0; number < size; number++)
+		{	// A subtree's last node is a leaf.
+			int leafEnd = leafStarts[lastInSubtree[number]] + 1;
+			leafSlices[number] = Collections.unmodifiableList(leaves.subList(leafStarts[number], leafEnd));
+		}
+		// Keys in level order, as Graph.findNode() searches
+		for (List<Node<T>> level: byLevel)
+		{
+			levels.add(Collections.unmodifiableList(level));
+			for (Node<T> node: level)
+				nodesByKey.putIfAbsent(node.getKey(), node);
+		}
+	}
+
+	// The subtree at root in preorder.
+	private static <T extends Comparable<T>> List<Node<T>> preorder(Node<T> root)
+	{
+		List<Node<T>> preorder = new ArrayList<>();
+		if (root != null)
+			preorder(root, preorder);
+		return preorder;
+	}
+
+	private static <T extends Comparable<T>> void preorder(Node<T> node, List<Node<T>> preorder)
+	{
+		preorder.add(node);
+		for (Node<T> child: node.getChildren())
+			preorder(child, preorder);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Comparable<T>> Node<T>[] toArray(List<Node<T>> preorder)
+	{
+		return preorder.toArray((Node<T>[]) new Node<?>[preorder.size()]);
+	}
+
+	private static <T extends Comparable<T>> int[] parentsOf(List<Node<T>> preorder)
+	{
+		Map<Node<T>, Integer> numbers = new IdentityHashMap<>();
+		for (Node<T> node: preorder)
+			numbers.put(node, numbers.size());
+		int[] parents = new int[preorder.size()];
+		if (parents.length > 0) parents[0] = -1;
+		for (int number = 0; number < parents.length; number++)
+		{
+			for (Node<T> child: preorder.get(number).getChildren())
+				parents[numbers.get(child)] = number;
+		}
+		return parents;
+	}
+
+	public Graph<T> getGraph()
+	{
+		return graph;
+	}
+
+	// The node with the key, or null.
+	public Node<T> findNode(T key)
+	{
+		return nodesByKey.get(key);
+	}
+
+	// True if node is ancestor or lies under it. Nodes outside the graph lie under nothing.
+	public boolean isUnder(Node<T> node, Node<T> ancestor)
+	{
+		Integer number = numbers.get(node), ancestorNumber = numbers.get(ancestor);
+		if (number == null || ancestorNumber == null) return false;
+		return ancestorNumber <= number && number <= lastInSubtree[ancestorNumber];
+	}
+
+	// The leaves under node (the node itself if it is a leaf), in depth-first order, as a read-only slice.
+	public List<Node<T>> getLeaves(Node<T> node)
+	{
+		return leafSlices[numberOf(node)];
+	}
+
+	// All of the graph's leaves, in depth-first order.
+	public List<Node<T>> getLeaves()
+	{
+		return leavesView;
+	}
+
+	// The nodes at the level (the root's is 0), as Graph.getNodesAtLevel() orders them.
+	public List<Node<T>> getNodesAtLevel(int level)
+	{
+		if (levels.isEmpty())
+		{
+			throw new RuntimeException("Root is null");
+		}
+		if (level < 0 || level >= levels.size())
+		{
+			throw new RuntimeException(String.format(
+				"Graph does not go up to level %d (stops at %d).", level, levels.size() - 1));
+		}
+		return levels.get(level);
+	}
+
+	// Number of levels, the root's included.
+	public int numLevels()
+	{
+		return levels.size();
+	}
+
+	public int getLevel(Node<T> node)
+	{
+		return depths[numberOf(node)];
+	}
+
+	/* The node's ancestor at the level, or the node itself if it is at that level. Returns null if
+	 * the level is deeper than the node's. */
+	public Node<T> getAncestor(Node<T> node, int level)
+	{
+		int number = numberOf(node);
+		if (level < 0 || level > depths[number]) return null;
+		while (depths[number] > level)
+			number = parents[number];
+		return nodes[number];
+	}
+
+	// Number of nodes in the graph.
+	public int size()
+	{
+		return numbers.size();
+	}
+
+	// The node numbered in preorder, for 0 <= number < size().
+	Node<T> getNode(int number)
+	{
+		return nodes[number];
+	}
+
+	// The preorder number of the node's parent, or -1 for the root.
+	int getParentNumber(int number)
+	{
+		return parents[number];
+	}
+
+	private int numberOf(Node<T> node)
+	{
+		Integer number = numbers.get(node);
+		if (number == null)
+			throw new IllegalArgumentException(String.format("%s is not in the graph.", node.getKey()));
+		return number;
+	}
+}
@@ -12,7 +12,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import nodes.Graph;
+import nodes.GraphFormat;
 import nodes.Node;
 import nodes.Team;
 
@@ -75,18 +75,13 @@ public class CFLReader extends GameReader<CFLGame, Team, String> {
 		
 	}
 
-	@SuppressWarnings("unchecked")
 	protected void loadCompetitorData(File teamDataSource) throws FileNotFoundException, IOException 
 	{
-		ObjectInputStream istream = new ObjectInputStream(new FileInputStream(teamDataSource));
-		try {
-			competitorGraph = (Graph<String>)istream.readObject();
-		} catch (ClassNotFoundException e) {
-			e.printStackTrace();
-		}
-		istream.close();
+		graphIndex = GraphFormat.read(teamDataSource);
+		competitorGraph = graphIndex.getGraph();
 		
-		Collection<Node<String>> nodes = competitorGraph.getNodesAtLevel(2);
+		// Teams are the graph's leaves, however deep the league's divisions go.
+		Collection<Node<String>> nodes = graphIndex.getLeaves();
 		competitorMap = new HashMap<>();
 		for (Node<String> n: nodes) 
 		{
@@ -8,6 +8,7 @@ import java.util.Map;
 
 import nodes.Competitor;
 import nodes.Graph;
+import nodes.GraphIndex;
 
 //@author Cody J. Stephens ({@code https://github.com/csharpsteph/})
 /*
@@ -18,6 +19,8 @@ public abstract class GameReader<Game extends AbstractGame<?>, N extends Competi
 	protected Map<String, N> competitorMap;
 	protected List<Game> gameList;
 	protected Graph<KeyType> competitorGraph;
+	// The competitor graph, frozen and indexed once it is loaded
+	protected GraphIndex<KeyType> graphIndex;
 	
 	protected GameReader(File competitorDataSource, File gameDataSource) throws FileNotFoundException, 
 		ClassNotFoundException, IOException
@@ -51,6 +54,11 @@ public abstract class GameReader<Game extends AbstractGame<?>, N extends Competi
 		return competitorGraph;
 	}
 	
+	public GraphIndex<KeyType> graphIndex()
+	{
+		return graphIndex;
+	}
+	
 	protected abstract void loadCompetitorData(File teamDataSource) throws FileNotFoundException, IOException, 
 	ClassNotFoundException;
 	protected abstract void loadGameData(File gameDataSource) throws FileNotFoundException, IOException, 
@@ -10,7 +10,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 
-import nodes.Graph;
+import nodes.GraphFormat;
 import nodes.Node;
 import nodes.Team;
 
@@ -23,15 +23,14 @@ public class NBAReader extends GameReader<NBAGame, Team, String> {
 		super(teamDataSource, gameDataSource);
 	}
 	
-	@SuppressWarnings("unchecked")
 	protected void loadCompetitorData(File teamDataSource) throws FileNotFoundException, IOException, 
 		ClassNotFoundException 
 	{
-		ObjectInputStream istream = new ObjectInputStream(new FileInputStream(teamDataSource));
-		competitorGraph = (Graph<String>)istream.readObject();
-		istream.close();
+		graphIndex = GraphFormat.read(teamDataSource);
+		competitorGraph = graphIndex.getGraph();
 		
-		Collection<Node<String>> nodes = competitorGraph.getNodesAtLevel(3);
+		// Teams are the graph's leaves, however deep the league's divisions go.
+		Collection<Node<String>> nodes = graphIndex.getLeaves();
 		competitorMap = new HashMap<>();
 		for (Node<String> n: nodes) 
 		{
@@ -12,7 +12,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import nodes.Graph;
+import nodes.GraphFormat;
 import nodes.Node;
 import nodes.Team;
 //@author Cody J. Stephens ({@code https://github.com/csharpsteph/})
@@ -24,14 +24,13 @@ public class OWLReader extends GameReader<OWLGame, Team, String> {
 		super(teamDataSource, gameDataSource);
 	}
 	
-	@SuppressWarnings("unchecked")
 	protected void loadCompetitorData(File teamDataSource) throws ClassNotFoundException, IOException
 	{
-		ObjectInputStream istream = new ObjectInputStream(new FileInputStream(teamDataSource));
-		competitorGraph = (Graph<String>)istream.readObject();
-		istream.close();
+		graphIndex = GraphFormat.read(teamDataSource);
+		competitorGraph = graphIndex.getGraph();
 		
-		Collection<Node<String>> nodes = competitorGraph.getNodesAtLevel(2);
+		// Teams are the graph's leaves, however deep the league's divisions go.
+		Collection<Node<String>> nodes = graphIndex.getLeaves();
 		competitorMap = new HashMap<>();
 		for (Node<String> n: nodes) 
 		{
@@ -0,0 +1,62 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import nodes.Competitor;
+import nodes.Team;
+import parse.OWLGame;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Checks for MarkovRating. A failed check throws an AssertionError.
+ */
+public class MarkovRatingTest {
+
+	public static void main(String[] args)
+	{
+		shutoutWinByScoreShare();
+		System.out.println("MarkovRatingTest passed.");
+	}
+
+	/* A team whose only result is a 10-0 win sends no weight back to the loser, so it has no
+	 * outgoing edges; its ratings, and everyone else's, must still be finite. */
+	static void shutoutWinByScoreShare()
+	{
+		Team shutout = new Team("AAA", "Alpha", "Shutouts");
+		Team loser = new Team("BBB", "Beta", "Losers");
+		Team other = new Team("CCC", "Gamma", "Others");
+		List<OWLGame> games = new ArrayList<>();
+		games.add(game(shutout, 10, loser, 0, 1));
+		games.add(game(loser, 3, other, 2, 2));
+		games.add(game(other, 2, loser, 1, 3));
+
+		MarkovRating<OWLGame> rating = new MarkovRating<>(new GameList<>(games),
+				MarkovRating.Weighting.SCORE_SHARE);
+		rating.compute();
+		Map<Competitor, Double> ratings = rating.getRatings();
+		double total = 0;
+		for (double value: ratings.values())
+		{
+			check(!Double.isNaN(value) && !Double.isInfinite(value), "Ratings are not finite: " + ratings);
+			total += value;
+		}
+		check(ratings.size() == 3, "Not every team is rated: " + ratings);
+		check(Math.abs(total - 1) < 1.0e-9, "Ratings do not sum to 1: " + ratings);
+	}
+
+	private static OWLGame game(Team team1, int score1, Team team2, int score2, int day)
+	{
+		return new OWLGame(team1, (byte) score1, team2, (byte) score2, new Date(day * 86400000L),
+				(byte) 1, (byte) 1);
+	}
+
+	private static void check(boolean condition, String message)
+	{
+		if (!condition) throw new AssertionError(message);
+	}
+}
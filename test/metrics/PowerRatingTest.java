@@ -0,0 +1,107 @@
+package metrics;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import nodes.Competitor;
+import parse.OWLGame;
+import parse.OWLReader;
+
+/**
+ * @author Cody J. Stephens ({@code https://github.com/csharpsteph/})
+ */
+
+/* Checks for PowerRating, run from the root folder against the bundled OWL data. A failed check
+ * throws an AssertionError.
+ */
+public class PowerRatingTest {
+
+	public static void main(String[] args) throws Exception
+	{
+		OWLReader reader = new OWLReader(new File("resources/owl/owl-graph.dat"),
+				new File("resources/owl/owl-clean.dat"));
+		GameList<OWLGame> gameList = new GameList<>(reader.gameList());
+		checkpointsTurnedOffSerially(gameList);
+		checkpointsTurnedOffInParallel(gameList);
+		System.out.println("PowerRatingTest passed.");
+	}
+
+	// Reprocessing after checkpoints are turned off drops the old checkpoints.
+	static void checkpointsTurnedOffSerially(GameList<OWLGame> gameList)
+	{
+		PowerRating<OWLGame> rating = checkpointed(gameList);
+		rating.process();
+		rating.setCheckpointInterval(0);
+		rating.process();
+		check(rating.getFinalRatings().equals(unchecked(gameList)), "Serial ratings changed.");
+		checkNoCheckpoints(rating);
+	}
+
+	// The parallel path reprocesses in one segment, rather than in segments of length 0 forever.
+	static void checkpointsTurnedOffInParallel(GameList<OWLGame> gameList) throws Exception
+	{
+		PowerRating<OWLGame> rating = checkpointed(gameList);
+		rating.processInParallel();
+		rating.setCheckpointInterval(0);
+		ExecutorService executor = Executors.newSingleThreadExecutor(task ->
+		{	// A daemon, so that a run which never ends does not keep the check from exiting
+			Thread thread = new Thread(task);
+			thread.setDaemon(true);
+			return thread;
+		});
+		try
+		{
+			Future<?> run = executor.submit(() -> rating.processInParallel());
+			run.get(60, TimeUnit.SECONDS);
+		}
+		catch (TimeoutException ex)
+		{
+			throw new AssertionError("processInParallel() did not finish without checkpoints.");
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+		check(rating.getFinalRatings().equals(unchecked(gameList)), "Parallel ratings changed.");
+		checkNoCheckpoints(rating);
+	}
+
+	private static PowerRating<OWLGame> checkpointed(GameList<OWLGame> gameList)
+	{
+		PowerRating<OWLGame> rating = new PowerRating<>(null, 1500, new OWLEloFunction(), gameList, false);
+		rating.setCheckpointInterval(16);
+		return rating;
+	}
+
+	// Final ratings from a PowerRating which never had checkpoints
+	private static Map<Competitor, Double> unchecked(GameList<OWLGame> gameList)
+	{
+		PowerRating<OWLGame> rating = new PowerRating<>(null, 1500, new OWLEloFunction(), gameList, false);
+		rating.process();
+		return rating.getFinalRatings();
+	}
+
+	// Without checkpoints or tracked changes, there are no earlier ratings to give.
+	private static void checkNoCheckpoints(PowerRating<OWLGame> rating)
+	{
+		try
+		{
+			rating.getRatingsBeforeGame(20);
+		}
+		catch (RuntimeException ex)
+		{
+			return;
+		}
+		throw new AssertionError("Ratings were read from checkpoints that had been turned off.");
+	}
+
+	private static void check(boolean condition, String message)
+	{
+		if (!condition) throw new AssertionError(message);
+	}
+}